@@ -0,0 +1,25 @@
+plugins {
+	application
+}
+
+dependencies {
+	implementation(project(":pulse-java"))
+	implementation(libs.jcpi)
+	implementation(libs.jmh.core)
+	annotationProcessor(libs.jmh.generator)
+}
+
+java {
+	toolchain {
+		languageVersion.set(JavaLanguageVersion.of(17))
+	}
+}
+
+tasks.withType<JavaCompile> {
+	options.compilerArgs.addAll(listOf("-Xlint:all", "-Werror"))
+}
+
+// Run all benchmarks with ./gradlew :pulse-java-jmh:run --args="-prof gc"
+application {
+	mainClass.set("org.openjdk.jmh.Main")
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * This state holds our corpus of positions. It covers the opening, the
+ * middlegame with castling and en passant, promotions and the endgame.
+ */
+@State(Scope.Thread)
+public class BenchmarkPositions {
+
+	static final String[] fens = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+		"4k3/8/8/8/8/8/4P3/4K3 w - - 0 1",
+		"8/8/1k6/8/2pP4/8/5BK1/8 b - d3 0 1"
+	};
+
+	Position[] positions;
+	boolean[] checks;
+	int[][] legalMoves;
+
+	@Setup
+	public void setUp() {
+		positions = new Position[fens.length];
+		checks = new boolean[fens.length];
+		legalMoves = new int[fens.length][];
+
+		MoveGenerator moveGenerator = new MoveGenerator();
+		for (int i = 0; i < fens.length; i++) {
+			positions[i] = Notation.toPosition(fens[i]);
+			checks[i] = positions[i].isCheck();
+
+			MoveList moves = moveGenerator.getLegalMoves(positions[i], 1, checks[i]);
+			legalMoves[i] = new int[moves.size];
+			for (int j = 0; j < moves.size; j++) {
+				legalMoves[i][j] = moves.moves[j];
+			}
+		}
+	}
+}
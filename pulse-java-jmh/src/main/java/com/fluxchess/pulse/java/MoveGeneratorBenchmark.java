@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGeneratorBenchmark {
+
+	private final MoveGenerator moveGenerator = new MoveGenerator();
+
+	@Benchmark
+	public int getMoves(BenchmarkPositions corpus) {
+		int size = 0;
+		for (int i = 0; i < corpus.positions.length; i++) {
+			size += moveGenerator.getMoves(corpus.positions[i], 1, corpus.checks[i]).size;
+		}
+
+		return size;
+	}
+
+	@Benchmark
+	public int getLegalMoves(BenchmarkPositions corpus) {
+		int size = 0;
+		for (int i = 0; i < corpus.positions.length; i++) {
+			size += moveGenerator.getLegalMoves(corpus.positions[i], 1, corpus.checks[i]).size;
+		}
+
+		return size;
+	}
+}
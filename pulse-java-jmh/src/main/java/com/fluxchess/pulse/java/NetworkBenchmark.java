@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the network with random weights of the given hidden layer size
+ * with the scalar and the Vector API kernel. Compare the results with
+ * EvaluationBenchmark.evaluate and PositionBenchmark.makeUndoMove, which run
+ * without a network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+	@Param({"256"})
+	public int hiddenSize;
+
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	private final Evaluation evaluation = new Evaluation();
+	private Position[] positions;
+
+	@Setup
+	public void setUp(BenchmarkPositions corpus) {
+		NetworkKernel networkKernel = "vector".equals(kernel)
+			? NetworkKernel.newVectorKernel()
+			: new ScalarNetworkKernel();
+		if (networkKernel == null) {
+			throw new IllegalStateException("The Vector API is not available");
+		}
+		Network network = newNetwork(networkKernel, hiddenSize);
+
+		positions = new Position[corpus.positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = new Position(corpus.positions[i]);
+			positions[i].setNetwork(network);
+		}
+	}
+
+	/**
+	 * Creates a network with random weights. It plays badly, but it costs the
+	 * same as a trained network of the same size.
+	 */
+	static Network newNetwork(NetworkKernel kernel, int hiddenSize) {
+		Random random = new Random(42);
+		return new Network(
+			kernel,
+			newWeights(random, Network.INPUT_SIZE * hiddenSize),
+			newWeights(random, hiddenSize),
+			newWeights(random, 2 * hiddenSize),
+			(short) 0);
+	}
+
+	private static short[] newWeights(Random random, int size) {
+		short[] weights = new short[size];
+		for (int i = 0; i < size; i++) {
+			weights[i] = (short) (random.nextInt(129) - 64);
+		}
+
+		return weights;
+	}
+
+	@Benchmark
+	public int evaluate() {
+		int value = 0;
+		for (Position position : positions) {
+			value += evaluation.evaluate(position);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Makes and undoes every legal move of the corpus, which updates the
+	 * accumulators twice per move.
+	 */
+	@Benchmark
+	public long makeUndoMove(BenchmarkPositions corpus) {
+		long keys = 0;
+		for (int i = 0; i < positions.length; i++) {
+			Position position = positions[i];
+
+			for (int move : corpus.legalMoves[i]) {
+				position.makeMove(move);
+				keys ^= position.zobristKey;
+				position.undoMove(move);
+			}
+		}
+
+		return keys;
+	}
+}
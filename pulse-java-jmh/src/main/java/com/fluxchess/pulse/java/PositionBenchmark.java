@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Square;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.fluxchess.pulse.java.model.Color.BLACK;
+import static com.fluxchess.pulse.java.model.Color.WHITE;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+
+	/**
+	 * Makes and undoes every legal move of the corpus.
+	 */
+	@Benchmark
+	public long makeUndoMove(BenchmarkPositions corpus) {
+		long keys = 0;
+		for (int i = 0; i < corpus.positions.length; i++) {
+			Position position = corpus.positions[i];
+
+			for (int move : corpus.legalMoves[i]) {
+				position.makeMove(move);
+				keys ^= position.zobristKey;
+				position.undoMove(move);
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Tests every square of the corpus whether it is attacked by either color.
+	 */
+	@Benchmark
+	public int isAttacked(BenchmarkPositions corpus) {
+		int attacked = 0;
+		for (Position position : corpus.positions) {
+			for (int square : Square.values) {
+				if (position.isAttacked(square, WHITE)) {
+					attacked++;
+				}
+				if (position.isAttacked(square, BLACK)) {
+					attacked++;
+				}
+			}
+		}
+
+		return attacked;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a fixed-depth search from a cleared transposition table, so every
+ * invocation does the same work. We search with the hand-written evaluation
+ * and with a network of random weights.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+	@Param({"0", "1"})
+	public int fen;
+
+	@Param({"6"})
+	public int depth;
+
+	@Param({"handcrafted", "network"})
+	public String evaluation;
+
+	private final Semaphore semaphore = new Semaphore(0);
+	private Search search;
+	private Position position;
+	private int bestMove;
+	private long totalNodes;
+
+	/**
+	 * Counts the searched nodes, so JMH reports them per second.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Nodes {
+		public long nodes;
+	}
+
+	@Setup
+	public void setUp() {
+		search = new Search(new Protocol() {
+			@Override
+			public void sendBestMove(int bestMove, int ponderMove) {
+				SearchBenchmark.this.bestMove = bestMove;
+				semaphore.release();
+			}
+
+			@Override
+			public void sendStatus(int currentDepth, int currentMaxDepth, long totalNodes, int currentMove, int currentMoveNumber) {
+			}
+
+			@Override
+			public void sendStatus(boolean force, int currentDepth, int currentMaxDepth, long totalNodes, int currentMove, int currentMoveNumber) {
+				SearchBenchmark.this.totalNodes = totalNodes;
+			}
+
+			@Override
+			public void sendMove(MoveList.RootEntry entry, int currentDepth, int currentMaxDepth, long totalNodes) {
+			}
+
+			@Override
+			public void sendInfo(String message) {
+			}
+
+			@Override
+			public void sendDebug(String message) {
+			}
+		});
+		search.setHashSize(TranspositionTable.MIN_SIZE);
+		if ("network".equals(evaluation)) {
+			search.setNetwork(NetworkBenchmark.newNetwork(NetworkKernel.newInstance(), 256));
+		}
+		position = Notation.toPosition(BenchmarkPositions.fens[fen]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		search.quit();
+	}
+
+	@Benchmark
+	public int search() throws InterruptedException {
+		search.newGame();
+		search.newDepthSearch(new Position(position), depth);
+		search.start();
+		semaphore.acquire();
+		search.stop();
+
+		return bestMove;
+	}
+
+	/**
+	 * Runs the same search and reports the searched nodes per second as the
+	 * secondary result "nodes". A network searches a different tree, so we
+	 * compare the evaluations by their nodes per second.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int searchNodes(Nodes nodes) throws InterruptedException {
+		int move = search();
+		nodes.nodes += totalNodes;
+
+		return move;
+	}
+}
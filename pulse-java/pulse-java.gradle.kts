@@ -14,21 +14,43 @@ java {
 	}
 }
 
+// The Vector API is still incubating in Java 17. We compile the code using
+// it in its own source set and load it only if the module is available, so
+// the main source set keeps running on every JVM.
+val vector: SourceSet by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+}
+val vectorJvmArgs = listOf("--add-modules", "jdk.incubator.vector")
+
 tasks.withType<JavaCompile> {
 	options.compilerArgs.addAll(listOf("-Xlint:all", "-Werror"))
 }
 
+// javac always warns about incubating modules, so we cannot use -Werror here
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+	options.compilerArgs.remove("-Werror")
+	options.compilerArgs.addAll(vectorJvmArgs)
+}
+
+tasks.jar {
+	from(vector.output)
+}
+
 tasks.test {
 	useJUnitPlatform()
+	classpath += vector.output
+	jvmArgs(vectorJvmArgs)
 }
 
 application {
 	mainClass.set("com.fluxchess.pulse.java.Main")
+	applicationDefaultJvmArgs = vectorJvmArgs
 	executableDir = ""
 }
 
 tasks.named<JavaExec>("run") {
 	standardInput = System.`in`
+	classpath(vector.output)
 }
 
 tasks.withType<Tar> {
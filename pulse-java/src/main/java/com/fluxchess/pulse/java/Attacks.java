@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Color;
+import com.fluxchess.pulse.java.model.Square;
+
+import static com.fluxchess.pulse.java.model.Square.bishopDirections;
+import static com.fluxchess.pulse.java.model.Square.kingDirections;
+import static com.fluxchess.pulse.java.model.Square.knightDirections;
+import static com.fluxchess.pulse.java.model.Square.pawnDirections;
+import static com.fluxchess.pulse.java.model.Square.queenDirections;
+import static com.fluxchess.pulse.java.model.Square.rookDirections;
+import static java.lang.Long.bitCount;
+
+/**
+ * This class holds precomputed attack bitboards. All tables are indexed by
+ * our 0x88 squares, so we don't have to convert squares while generating
+ * moves. The attacks of sliding pieces are looked up with magic bitboards.
+ * We multiply the relevant occupancy with a magic number and use the upper
+ * bits of the product as index into the attack table. The magic numbers
+ * were found with a random search and are indexed by 64 square bit index.
+ */
+final class Attacks {
+
+	static final long[] knightAttacks = new long[Square.VALUES_LENGTH];
+	static final long[] kingAttacks = new long[Square.VALUES_LENGTH];
+	static final long[][] pawnAttacks = new long[Color.values.length][Square.VALUES_LENGTH];
+
+	// The squares between two squares and the whole line through two squares.
+	// Both are empty if the squares are not on a common line.
+	static final long[][] between = new long[Square.VALUES_LENGTH][Square.VALUES_LENGTH];
+	static final long[][] line = new long[Square.VALUES_LENGTH][Square.VALUES_LENGTH];
+
+	private static final Magic[] bishopMagics = new Magic[Square.VALUES_LENGTH];
+	private static final Magic[] rookMagics = new Magic[Square.VALUES_LENGTH];
+
+	private static final long[] bishopMagicNumbers = {
+		0x8041241102020010L, 0xA020048400404000L, 0x0021010400828010L, 0x0004410020201000L,
+		0x0D61104000A08B04L, 0x4048441004120800L, 0x2060880402200010L, 0x0094120210028800L,
+		0x4280204801590400L, 0x2802081021004501L, 0x00080800A1020000L, 0x10006C5046000060L,
+		0x6200084840120082L, 0x21450C4420040808L, 0x0010014208344001L, 0x0140820461082800L,
+		0x4062081004890802L, 0x80080402120C2401L, 0x0010040200244100L, 0xA024001844120004L,
+		0x0181008490401814L, 0x4002034101010148L, 0x240040440C048400L, 0x0008CC008C0C0100L,
+		0x880808C045200840L, 0x0010484231050100L, 0x4400411008080100L, 0x1004040008021104L,
+		0x0056001002005000L, 0x4008008208088C01L, 0x000080A032121000L, 0x1803820224814C20L,
+		0x0011100850420803L, 0x2480CC1000049000L, 0x0804109000080240L, 0x4140042008040100L,
+		0x4210200820120020L, 0x8081020200368808L, 0x0930222080004420L, 0x0000809080010404L,
+		0x0808020804082223L, 0x0100809010708800L, 0x5001008050008100L, 0x0000022011000810L,
+		0xA000100210102A00L, 0x42921002008A2600L, 0x90C2040102000420L, 0x8004080041124040L,
+		0x1000480410081040L, 0x0003084222200200L, 0x0102410088444000L, 0x20008444840400C0L,
+		0x0400001082020183L, 0x0014091010088280L, 0x31400B5E02021000L, 0x8004083801102800L,
+		0x0009040880A41001L, 0x1820008080882020L, 0x0000000211040902L, 0x0000402411084800L,
+		0x022008043002060CL, 0x5821002020310A41L, 0x080040C802040046L, 0x000242100C0A8683L
+	};
+
+	private static final long[] rookMagicNumbers = {
+		0x00800140009CE080L, 0x0140100020004000L, 0x2080200080081001L, 0x0200081022000440L,
+		0x2600082010820004L, 0x0E00245002000821L, 0xC2002104882A0014L, 0x0300004600229300L,
+		0x0001800461400884L, 0x0001C0022010004CL, 0x0082002A00108040L, 0x8011000906100020L,
+		0x10C90018001100A5L, 0x0000800200040080L, 0x8162000200080104L, 0x0101000900288042L,
+		0x0804268000400480L, 0x0030004040002004L, 0x0321010020004014L, 0x0084090010002100L,
+		0x4820808004000800L, 0x0000808004000201L, 0x4200240008212290L, 0x8402060000810444L,
+		0x0000400080208005L, 0x0400400040201000L, 0x0008204200120080L, 0xA03650010008A100L,
+		0x4048004040040201L, 0x5086020080040080L, 0x0015000100020004L, 0xC884040200004081L,
+		0x0200204010800085L, 0x0210002002400040L, 0x0208144202002080L, 0x2008100181800802L,
+		0x0820110005000800L, 0x0000800400800200L, 0x2000100804000201L, 0x8000204082000104L,
+		0x00D0400020908000L, 0x4010004820044000L, 0x4001002000110040L, 0x0008001000088080L,
+		0x0088001009010004L, 0x2204001008020200L, 0x1000301102840018L, 0x0000004081220004L,
+		0x8000800040002080L, 0x2000804001200180L, 0x8045042008401100L, 0x4090000804004040L,
+		0x0003001004080100L, 0x000C800400020080L, 0x0206811008020400L, 0x0006911084004200L,
+		0x0082004280116506L, 0x3205004112022082L, 0xC004992000504101L, 0x1004210008041001L,
+		0x8002002008100402L, 0x0001000400080203L, 0x2041080090020124L, 0x2010084083240D02L
+	};
+
+	private static final class Magic {
+
+		private final long mask;
+		private final long magic;
+		private final int shift;
+		private final long[] attacks;
+
+		private Magic(long mask, long magic, int shift, long[] attacks) {
+			this.mask = mask;
+			this.magic = magic;
+			this.shift = shift;
+			this.attacks = attacks;
+		}
+
+		private long get(long occupied) {
+			return attacks[(int) (((occupied & mask) * magic) >>> shift)];
+		}
+	}
+
+	static {
+		for (int square : Square.values) {
+			knightAttacks[square] = getAttacks(square, knightDirections, -1L);
+			kingAttacks[square] = getAttacks(square, kingDirections, -1L);
+			for (int color : Color.values) {
+				for (int i = 1; i < pawnDirections[color].length; i++) {
+					int targetSquare = square + pawnDirections[color][i];
+					if (Square.isValid(targetSquare)) {
+						pawnAttacks[color][square] = Bitboard.add(targetSquare, pawnAttacks[color][square]);
+					}
+				}
+			}
+
+			bishopMagics[square] = newMagic(square, bishopDirections, bishopMagicNumbers[Bitboard.toBitSquare(square)]);
+			rookMagics[square] = newMagic(square, rookDirections, rookMagicNumbers[Bitboard.toBitSquare(square)]);
+
+			for (int direction : queenDirections) {
+				long ray = Bitboard.add(square, getAttacks(square, new int[]{direction, -direction}, 0));
+
+				long squares = 0;
+				for (int targetSquare = square + direction; Square.isValid(targetSquare); targetSquare += direction) {
+					between[square][targetSquare] = squares;
+					line[square][targetSquare] = ray;
+					squares = Bitboard.add(targetSquare, squares);
+				}
+			}
+		}
+	}
+
+	private Attacks() {
+	}
+
+	static long bishopAttacks(int square, long occupied) {
+		return bishopMagics[square].get(occupied);
+	}
+
+	static long rookAttacks(int square, long occupied) {
+		return rookMagics[square].get(occupied);
+	}
+
+	static long queenAttacks(int square, long occupied) {
+		return bishopMagics[square].get(occupied) | rookMagics[square].get(occupied);
+	}
+
+	/**
+	 * Returns the attacks from the square by walking the directions until we
+	 * hit an occupied square or the border. The occupied square is included.
+	 * We only use this to initialize our tables.
+	 */
+	private static long getAttacks(int square, int[] directions, long occupied) {
+		long attacks = 0;
+
+		for (int direction : directions) {
+			int targetSquare = square + direction;
+
+			while (Square.isValid(targetSquare)) {
+				attacks = Bitboard.add(targetSquare, attacks);
+
+				if ((Bitboard.add(targetSquare, 0) & occupied) != 0) {
+					break;
+				}
+
+				targetSquare += direction;
+			}
+		}
+
+		return attacks;
+	}
+
+	/**
+	 * Returns the relevant occupancy mask of a sliding piece. The last square
+	 * of every ray does not change the attacks, so we leave it out.
+	 */
+	private static long getMask(int square, int[] directions) {
+		long mask = 0;
+
+		for (int direction : directions) {
+			int targetSquare = square + direction;
+
+			while (Square.isValid(targetSquare) && Square.isValid(targetSquare + direction)) {
+				mask = Bitboard.add(targetSquare, mask);
+				targetSquare += direction;
+			}
+		}
+
+		return mask;
+	}
+
+	private static Magic newMagic(int square, int[] directions, long magic) {
+		long mask = getMask(square, directions);
+		int shift = Long.SIZE - bitCount(mask);
+		long[] attacks = new long[1 << bitCount(mask)];
+
+		// Enumerate all subsets of the mask with the carry-rippler trick
+		long occupied = 0;
+		do {
+			attacks[(int) ((occupied * magic) >>> shift)] = getAttacks(square, directions, occupied);
+			occupied = (occupied - mask) & mask;
+		} while (occupied != 0);
+
+		return new Magic(mask, magic, shift, attacks);
+	}
+}
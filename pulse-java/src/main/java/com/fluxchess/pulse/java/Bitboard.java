@@ -34,11 +34,11 @@ final class Bitboard {
 		return bitCount(bitboard);
 	}
 
-	private static int toX88Square(int square) {
+	static int toX88Square(int square) {
 		return ((square & ~7) << 1) | (square & 7);
 	}
 
-	private static int toBitSquare(int square) {
+	static int toBitSquare(int square) {
 		return ((square & ~7) >>> 1) | (square & 7);
 	}
 }
@@ -6,45 +6,196 @@
  */
 package com.fluxchess.pulse.java;
 
+import com.fluxchess.pulse.java.model.Color;
 import com.fluxchess.pulse.java.model.Piece;
 import com.fluxchess.pulse.java.model.PieceType;
 import com.fluxchess.pulse.java.model.Square;
+import com.fluxchess.pulse.java.model.Value;
 
+import static com.fluxchess.pulse.java.model.Color.BLACK;
+import static com.fluxchess.pulse.java.model.Color.WHITE;
 import static com.fluxchess.pulse.java.model.Color.opposite;
-import static com.fluxchess.pulse.java.model.Square.bishopDirections;
-import static com.fluxchess.pulse.java.model.Square.knightDirections;
-import static com.fluxchess.pulse.java.model.Square.queenDirections;
-import static com.fluxchess.pulse.java.model.Square.rookDirections;
+import static com.fluxchess.pulse.java.model.Square.pawnDirections;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 final class Evaluation {
 
 	static final int TEMPO = 1;
 
-	private static final int MATERIAL_WEIGHT = 100;
-	private static final int MOBILITY_WEIGHT = 80;
-	private static final int MAX_WEIGHT = 100;
+	// The number of entries in the pawn table. Must be a power of two.
+	static final int PAWN_TABLE_SIZE = 1 << 14;
+
+	private static final int BISHOP_PAIR = Score.valueOf(40, 60);
+
+	// Mobility scores per attacked square
+	private static final int KNIGHT_MOBILITY = Score.valueOf(3, 3);
+	private static final int BISHOP_MOBILITY = Score.valueOf(4, 4);
+	private static final int ROOK_MOBILITY = Score.valueOf(2, 2);
+	private static final int QUEEN_MOBILITY = Score.valueOf(1, 1);
+
+	// Pawn structure scores. Passed pawns are indexed by the rank relative to
+	// their color.
+	private static final int[] PASSED_PAWN = {
+		Score.ZERO, Score.valueOf(5, 10), Score.valueOf(10, 15), Score.valueOf(15, 25),
+		Score.valueOf(25, 40), Score.valueOf(40, 65), Score.valueOf(60, 100), Score.ZERO
+	};
+	private static final int[] FREE_PASSED_PAWN = {
+		Score.ZERO, Score.ZERO, Score.valueOf(0, 5), Score.valueOf(0, 10),
+		Score.valueOf(0, 15), Score.valueOf(0, 25), Score.valueOf(0, 40), Score.ZERO
+	};
+	private static final int DOUBLED_PAWN = Score.valueOf(-10, -20);
+	private static final int ISOLATED_PAWN = Score.valueOf(-10, -15);
+	private static final int BACKWARD_PAWN = Score.valueOf(-8, -10);
+
+	// King safety scores. They only matter in the midgame.
+	private static final int PAWN_SHIELD_NEAR = Score.valueOf(10, 0);
+	private static final int PAWN_SHIELD_FAR = Score.valueOf(5, 0);
+	private static final int SEMI_OPEN_KING_FILE = Score.valueOf(-15, 0);
+	private static final int OPEN_KING_FILE = Score.valueOf(-10, 0);
+	private static final int KING_ZONE_ATTACKER = Score.valueOf(-8, 0);
+
+	// In the endgame our king should support our passed pawns and stop the
+	// passed pawns of the opposite color. We weight the king distances to the
+	// square in front of a passed pawn by the rank of the pawn.
+	private static final int MY_KING_DISTANCE = Score.valueOf(0, -1);
+	private static final int OPPOSITE_KING_DISTANCE = Score.valueOf(0, 2);
+
+	// The squares on the same and the adjacent files in front of a pawn, the
+	// squares on the same file in front of a pawn and the squares on the
+	// adjacent files beside or behind a pawn.
+	private static final long[][] passedPawnMasks = new long[Color.values.length][Square.VALUES_LENGTH];
+	private static final long[][] forwardFileMasks = new long[Color.values.length][Square.VALUES_LENGTH];
+	private static final long[][] supportMasks = new long[Color.values.length][Square.VALUES_LENGTH];
+	private static final long[] adjacentFileMasks = new long[Square.VALUES_LENGTH];
+
+	// The squares on the file of a square and the squares at most two steps
+	// away from a king
+	private static final long[] fileMasks = new long[Square.VALUES_LENGTH];
+	private static final long[] kingZoneMasks = new long[Square.VALUES_LENGTH];
+
+	static {
+		for (int square : Square.values) {
+			int file = Square.getFile(square);
+
+			for (int targetSquare : Square.values) {
+				if (getDistance(square, targetSquare) <= 2) {
+					kingZoneMasks[square] = Bitboard.add(targetSquare, kingZoneMasks[square]);
+				}
+
+				int distance = Math.abs(Square.getFile(targetSquare) - file);
+				if (distance > 1) {
+					continue;
+				}
+
+				for (int color : Color.values) {
+					int ranks = getRelativeRank(color, targetSquare) - getRelativeRank(color, square);
+
+					if (ranks > 0) {
+						passedPawnMasks[color][square] = Bitboard.add(targetSquare, passedPawnMasks[color][square]);
+						if (distance == 0) {
+							forwardFileMasks[color][square] = Bitboard.add(targetSquare, forwardFileMasks[color][square]);
+						}
+					} else if (distance == 1) {
+						supportMasks[color][square] = Bitboard.add(targetSquare, supportMasks[color][square]);
+					}
+				}
+
+				if (distance == 0) {
+					fileMasks[square] = Bitboard.add(targetSquare, fileMasks[square]);
+				} else {
+					adjacentFileMasks[square] = Bitboard.add(targetSquare, adjacentFileMasks[square]);
+				}
+			}
+		}
+	}
+
+	// The pawn structure does not change often, so we cache its value and
+	// the passed pawns keyed by the pawn zobrist key. An empty entry matches
+	// the position without pawns, which also has no pawn structure value.
+	private static final class PawnEntry {
+
+		private long pawnZobristKey = 0;
+		private long passedPawns = 0;
+		private int score = Score.ZERO;
+	}
+
+	private final PawnEntry[] pawnTable = new PawnEntry[PAWN_TABLE_SIZE];
+
+	// The evaluation table may be shared with other threads. We count our own
+	// probes and hits, so we don't have to synchronize the counters.
+	private final EvaluationTable evaluationTable;
+	long evaluationTableProbes = 0;
+	long evaluationTableHits = 0;
+
+	/**
+	 * Creates an evaluation without an evaluation table.
+	 */
+	Evaluation() {
+		this(null);
+	}
+
+	Evaluation(EvaluationTable evaluationTable) {
+		this.evaluationTable = evaluationTable;
+
+		for (int i = 0; i < pawnTable.length; i++) {
+			pawnTable[i] = new PawnEntry();
+		}
+	}
 
 	/**
-	 * Evaluates the position.
+	 * Evaluates the position. We look up the value in the evaluation table
+	 * first and store it there if we had to compute it.
 	 *
 	 * @param position the position.
 	 * @return the evaluation value in centipawns.
 	 */
 	int evaluate(Position position) {
-		// Initialize
-		int myColor = position.activeColor;
-		int oppositeColor = opposite(myColor);
-		int value = 0;
+		if (evaluationTable == null) {
+			return computeValue(position);
+		}
+
+		evaluationTableProbes++;
+		int value = evaluationTable.probe(position.zobristKey);
+		if (value != Value.NOVALUE) {
+			evaluationTableHits++;
+			return value;
+		}
+
+		value = computeValue(position);
+		evaluationTable.put(position.zobristKey, value);
+
+		return value;
+	}
+
+	private int computeValue(Position position) {
+		if (position.network != null) {
+			return position.network.evaluate(position.accumulators, position.activeColor);
+		}
+
+		// We evaluate every term as a score from the view of white and
+		// interpolate only once at the end
+		int score = Score.ZERO;
 
 		// Evaluate material
-		int materialScore = (evaluateMaterial(myColor, position) - evaluateMaterial(oppositeColor, position))
-			* MATERIAL_WEIGHT / MAX_WEIGHT;
-		value += materialScore;
+		score += evaluateMaterial(WHITE, position) - evaluateMaterial(BLACK, position);
+
+		// Evaluate piece-square tables
+		score += position.scores[WHITE] - position.scores[BLACK];
 
 		// Evaluate mobility
-		int mobilityScore = (evaluateMobility(myColor, position) - evaluateMobility(oppositeColor, position))
-			* MOBILITY_WEIGHT / MAX_WEIGHT;
-		value += mobilityScore;
+		score += evaluateMobility(WHITE, position) - evaluateMobility(BLACK, position);
+
+		// Evaluate pawn structure
+		score += evaluatePawnStructure(position);
+
+		// Evaluate king safety
+		score += evaluateKingSafety(WHITE, position) - evaluateKingSafety(BLACK, position);
+
+		int value = Score.interpolate(score, min(position.phase, Score.MAX_PHASE));
+		if (position.activeColor == BLACK) {
+			value = -value;
+		}
 
 		// Add Tempo
 		value += TEMPO;
@@ -52,66 +203,181 @@ final class Evaluation {
 		return value;
 	}
 
-	private int evaluateMaterial(int color, Position position) {
+	private static int evaluateMaterial(int color, Position position) {
 		int material = position.material[color];
+		int score = Score.valueOf(material, material);
 
 		// Add bonus for bishop pair
 		if (Bitboard.size(position.pieces[color][PieceType.BISHOP]) >= 2) {
-			material += 50;
+			score += BISHOP_PAIR;
 		}
 
-		return material;
+		return score;
 	}
 
-	private int evaluateMobility(int color, Position position) {
+	private static int evaluateMobility(int color, Position position) {
+		long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+
 		int knightMobility = 0;
 		for (long squares = position.pieces[color][PieceType.KNIGHT]; squares != 0; squares = Bitboard.remainder(squares)) {
 			int square = Bitboard.next(squares);
-			knightMobility += evaluateMobility(position, square, knightDirections);
+			knightMobility += Bitboard.size(Attacks.knightAttacks[square]);
 		}
 
 		int bishopMobility = 0;
 		for (long squares = position.pieces[color][PieceType.BISHOP]; squares != 0; squares = Bitboard.remainder(squares)) {
 			int square = Bitboard.next(squares);
-			bishopMobility += evaluateMobility(position, square, bishopDirections);
+			bishopMobility += Bitboard.size(Attacks.bishopAttacks(square, occupied));
 		}
 
 		int rookMobility = 0;
 		for (long squares = position.pieces[color][PieceType.ROOK]; squares != 0; squares = Bitboard.remainder(squares)) {
 			int square = Bitboard.next(squares);
-			rookMobility += evaluateMobility(position, square, rookDirections);
+			rookMobility += Bitboard.size(Attacks.rookAttacks(square, occupied));
 		}
 
 		int queenMobility = 0;
 		for (long squares = position.pieces[color][PieceType.QUEEN]; squares != 0; squares = Bitboard.remainder(squares)) {
 			int square = Bitboard.next(squares);
-			queenMobility += evaluateMobility(position, square, queenDirections);
+			queenMobility += Bitboard.size(Attacks.queenAttacks(square, occupied));
 		}
 
-		return knightMobility * 4
-			+ bishopMobility * 5
-			+ rookMobility * 2
-			+ queenMobility;
+		return KNIGHT_MOBILITY * knightMobility
+			+ BISHOP_MOBILITY * bishopMobility
+			+ ROOK_MOBILITY * rookMobility
+			+ QUEEN_MOBILITY * queenMobility;
 	}
 
-	private int evaluateMobility(Position position, int square, int[] directions) {
-		int mobility = 0;
-		boolean sliding = PieceType.isSliding(Piece.getType(position.board[square]));
+	/**
+	 * Evaluates the pawn structure from the view of white. The pawns alone
+	 * are looked up in the pawn table. Terms which depend on other pieces,
+	 * like the distance of the kings to the passed pawns, are added
+	 * afterwards.
+	 */
+	private int evaluatePawnStructure(Position position) {
+		PawnEntry entry = pawnTable[(int) position.pawnZobristKey & (PAWN_TABLE_SIZE - 1)];
+		if (entry.pawnZobristKey != position.pawnZobristKey) {
+			entry.pawnZobristKey = position.pawnZobristKey;
+			entry.passedPawns = 0;
+			entry.score = evaluatePawns(WHITE, position, entry) - evaluatePawns(BLACK, position, entry);
+		}
 
-		for (int direction : directions) {
-			int targetSquare = square + direction;
+		return entry.score
+			+ evaluatePassedPawns(WHITE, entry.passedPawns, position)
+			- evaluatePassedPawns(BLACK, entry.passedPawns, position);
+	}
 
-			while (Square.isValid(targetSquare)) {
-				mobility++;
+	private static int evaluatePawns(int color, Position position, PawnEntry entry) {
+		long myPawns = position.pieces[color][PieceType.PAWN];
+		long oppositePawns = position.pieces[opposite(color)][PieceType.PAWN];
 
-				if (sliding && position.board[targetSquare] == Piece.NOPIECE) {
-					targetSquare += direction;
-				} else {
-					break;
+		int score = Score.ZERO;
+		for (long squares = myPawns; squares != 0; squares = Bitboard.remainder(squares)) {
+			int square = Bitboard.next(squares);
+
+			// Only the front pawn of doubled pawns can be passed
+			boolean doubled = (myPawns & forwardFileMasks[color][square]) != 0;
+			boolean passed = !doubled && (oppositePawns & passedPawnMasks[color][square]) == 0;
+			boolean isolated = (myPawns & adjacentFileMasks[square]) == 0;
+
+			if (doubled) {
+				score += DOUBLED_PAWN;
+			}
+
+			if (passed) {
+				entry.passedPawns = Bitboard.add(square, entry.passedPawns);
+				score += PASSED_PAWN[getRelativeRank(color, square)];
+			}
+
+			if (isolated) {
+				score += ISOLATED_PAWN;
+			} else if (!passed && (myPawns & supportMasks[color][square]) == 0) {
+				// A pawn is backward if no pawn beside or behind it can support it
+				// and an opposite pawn controls the square in front of it
+				int stopSquare = square + pawnDirections[color][0];
+				if ((Attacks.pawnAttacks[color][stopSquare] & oppositePawns) != 0) {
+					score += BACKWARD_PAWN;
+				}
+			}
+		}
+
+		return score;
+	}
+
+	private static int evaluatePassedPawns(int color, long passedPawns, Position position) {
+		int myKingSquare = Bitboard.next(position.pieces[color][PieceType.KING]);
+		int oppositeKingSquare = Bitboard.next(position.pieces[opposite(color)][PieceType.KING]);
+
+		int score = Score.ZERO;
+		for (long squares = passedPawns & position.pieces[color][PieceType.PAWN]; squares != 0; squares = Bitboard.remainder(squares)) {
+			int square = Bitboard.next(squares);
+			int rank = getRelativeRank(color, square);
+			int stopSquare = square + pawnDirections[color][0];
+
+			// Add bonus if the pawn can advance
+			if (position.board[stopSquare] == Piece.NOPIECE) {
+				score += FREE_PASSED_PAWN[rank];
+			}
+
+			score += MY_KING_DISTANCE * getDistance(myKingSquare, stopSquare) * rank
+				+ OPPOSITE_KING_DISTANCE * getDistance(oppositeKingSquare, stopSquare) * rank;
+		}
+
+		return score;
+	}
+
+	/**
+	 * Evaluates the safety of the king by its pawn shield, the open files
+	 * around it and the opposite pieces close to it.
+	 */
+	private static int evaluateKingSafety(int color, Position position) {
+		int oppositeColor = opposite(color);
+		int kingSquare = Bitboard.next(position.pieces[color][PieceType.KING]);
+		int kingRank = getRelativeRank(color, kingSquare);
+		long myPawns = position.pieces[color][PieceType.PAWN];
+		long oppositePawns = position.pieces[oppositeColor][PieceType.PAWN];
+
+		int score = Score.ZERO;
+
+		// Evaluate pawn shield
+		for (long squares = myPawns & passedPawnMasks[color][kingSquare]; squares != 0; squares = Bitboard.remainder(squares)) {
+			int distance = getRelativeRank(color, Bitboard.next(squares)) - kingRank;
+			if (distance == 1) {
+				score += PAWN_SHIELD_NEAR;
+			} else if (distance == 2) {
+				score += PAWN_SHIELD_FAR;
+			}
+		}
+
+		// Evaluate open files on and next to the king
+		for (int file = max(Square.getFile(kingSquare) - 1, 0); file <= min(Square.getFile(kingSquare) + 1, 7); file++) {
+			long fileMask = fileMasks[Square.valueOf(file, 0)];
+			if ((myPawns & fileMask) == 0) {
+				score += SEMI_OPEN_KING_FILE;
+				if ((oppositePawns & fileMask) == 0) {
+					score += OPEN_KING_FILE;
 				}
 			}
 		}
 
-		return mobility;
+		// Evaluate opposite pieces close to the king. The queen counts twice.
+		long[] oppositePieces = position.pieces[oppositeColor];
+		long kingZone = kingZoneMasks[kingSquare];
+		int attackers = Bitboard.size((oppositePieces[PieceType.KNIGHT] | oppositePieces[PieceType.BISHOP]
+			| oppositePieces[PieceType.ROOK] | oppositePieces[PieceType.QUEEN]) & kingZone)
+			+ Bitboard.size(oppositePieces[PieceType.QUEEN] & kingZone);
+		score += KING_ZONE_ATTACKER * attackers;
+
+		return score;
+	}
+
+	private static int getDistance(int square1, int square2) {
+		return max(Math.abs(Square.getFile(square1) - Square.getFile(square2)),
+			Math.abs(Square.getRank(square1) - Square.getRank(square2)));
+	}
+
+	private static int getRelativeRank(int color, int square) {
+		int rank = Square.getRank(square);
+		return color == WHITE ? rank : 7 - rank;
 	}
 }
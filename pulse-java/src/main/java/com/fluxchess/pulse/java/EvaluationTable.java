@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Value;
+
+import java.util.Arrays;
+
+/**
+ * This class caches evaluation values keyed by the zobrist key of a
+ * position. It is direct-mapped and uses the same lock-free layout as the
+ * TranspositionTable, so all search threads can share one table. A slot
+ * consists of two longs, the key xor'ed with the data and the data itself.
+ * The data holds the value with an offset, so an empty slot never matches.
+ */
+final class EvaluationTable {
+
+	static final int DEFAULT_SIZE = 4;
+	static final int MIN_SIZE = 1;
+	static final int MAX_SIZE = 1024;
+
+	private static final int SLOT_SIZE = 2;
+	private static final int VALUE_OFFSET = Value.INFINITE;
+
+	private long[] entries;
+	private int slotMask;
+
+	EvaluationTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	/**
+	 * Resizes the table to the largest power of two number of slots which
+	 * fits into the given megabytes. All entries are lost.
+	 *
+	 * @param megabytes the size in megabytes.
+	 */
+	void resize(int megabytes) {
+		if (megabytes < MIN_SIZE || megabytes > MAX_SIZE) {
+			throw new IllegalArgumentException();
+		}
+
+		long slots = ((long) megabytes * 1024 * 1024) / (Long.BYTES * SLOT_SIZE);
+		int size = Long.numberOfTrailingZeros(Long.highestOneBit(slots));
+
+		// Release the old table first, so we don't need twice the memory
+		entries = null;
+		entries = new long[(1 << size) * SLOT_SIZE];
+		slotMask = (1 << size) - 1;
+	}
+
+	void clear() {
+		Arrays.fill(entries, 0);
+	}
+
+	/**
+	 * Returns the evaluation value of the position.
+	 *
+	 * @param zobristKey the zobrist key of the position.
+	 * @return the value or Value.NOVALUE.
+	 */
+	int probe(long zobristKey) {
+		int index = getIndex(zobristKey);
+
+		long data = entries[index + 1];
+		if ((entries[index] ^ data) == zobristKey && data != 0) {
+			return (int) data - VALUE_OFFSET;
+		}
+
+		return Value.NOVALUE;
+	}
+
+	void put(long zobristKey, int value) {
+		int index = getIndex(zobristKey);
+
+		long data = value + VALUE_OFFSET;
+		entries[index] = zobristKey ^ data;
+		entries[index + 1] = data;
+	}
+
+	private int getIndex(long zobristKey) {
+		return ((int) zobristKey & slotMask) * SLOT_SIZE;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Color;
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.Square;
+
+import java.util.Arrays;
+
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * This class stores the statistics we use to order quiet moves. The history
+ * table is a butterfly table indexed by color, origin square and target
+ * square. The countermove table stores the quiet move which refuted a move,
+ * indexed by the piece and the target square of that move.
+ */
+final class History {
+
+	// We keep all history values between -MAX_VALUE and MAX_VALUE
+	static final int MAX_VALUE = 16384;
+
+	private final int[][][] butterfly = new int[Color.values.length][Square.VALUES_LENGTH][Square.VALUES_LENGTH];
+	private final int[][] counterMoves = new int[Piece.values.length][Square.VALUES_LENGTH];
+
+	History() {
+		clear();
+	}
+
+	void clear() {
+		for (int[][] table : butterfly) {
+			for (int[] entries : table) {
+				Arrays.fill(entries, 0);
+			}
+		}
+		for (int[] entries : counterMoves) {
+			Arrays.fill(entries, NOMOVE);
+		}
+	}
+
+	int get(int color, int move) {
+		return butterfly[color][Move.getOriginSquare(move)][Move.getTargetSquare(move)];
+	}
+
+	/**
+	 * Adds the bonus to the history value of the move. We use a gravity
+	 * formula, which pulls a value back towards zero the larger it gets. So
+	 * old values age automatically and never leave the bounds.
+	 *
+	 * @param color the color of the move.
+	 * @param move  the move.
+	 * @param bonus the bonus. It is negative for moves which did not produce a
+	 *              cut-off.
+	 */
+	void update(int color, int move, int bonus) {
+		int[] entries = butterfly[color][Move.getOriginSquare(move)];
+		int targetSquare = Move.getTargetSquare(move);
+
+		int clampedBonus = max(-MAX_VALUE, min(bonus, MAX_VALUE));
+		entries[targetSquare] += clampedBonus - entries[targetSquare] * abs(clampedBonus) / MAX_VALUE;
+	}
+
+	/**
+	 * Returns the countermove of the previous move or NOMOVE.
+	 */
+	int getCounterMove(int previousMove) {
+		if (previousMove == NOMOVE) {
+			return NOMOVE;
+		}
+
+		return counterMoves[Move.getOriginPiece(previousMove)][Move.getTargetSquare(previousMove)];
+	}
+
+	void setCounterMove(int previousMove, int move) {
+		if (previousMove != NOMOVE) {
+			counterMoves[Move.getOriginPiece(previousMove)][Move.getTargetSquare(previousMove)] = move;
+		}
+	}
+}
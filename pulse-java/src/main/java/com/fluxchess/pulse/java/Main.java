@@ -9,6 +9,8 @@ package com.fluxchess.pulse.java;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class Main {
 
@@ -18,8 +20,32 @@ public final class Main {
 			PrintStream printer = System.out;
 			Pulse engine = new Pulse(reader, printer);
 			engine.run();
-		} else if (args.length == 1 && "perft".equalsIgnoreCase(args[0])) {
-			new Perft().run();
+		} else if ("perft".equalsIgnoreCase(args[0])) {
+			try {
+				// The hash size is a named flag, so the positional arguments keep
+				// their meaning
+				int hashSize = Perft.DEFAULT_HASH_SIZE;
+				List<String> arguments = new ArrayList<>();
+				for (int i = 1; i < args.length; i++) {
+					if ("--hash".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+						hashSize = Integer.parseInt(args[++i]);
+					} else {
+						arguments.add(args[i]);
+					}
+				}
+
+				int depth = arguments.size() > 0 ? Integer.parseInt(arguments.get(0)) : Perft.DEFAULT_DEPTH;
+				int threads = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : Perft.DEFAULT_THREADS;
+				// The FEN may be passed as one or as several arguments
+				String fen = arguments.size() > 2
+					? String.join(" ", arguments.subList(2, arguments.size()))
+					: Notation.STANDARDPOSITION;
+
+				new Perft().run(fen, depth, threads, hashSize);
+			} catch (IllegalArgumentException e) {
+				printUsage();
+				System.exit(1);
+			}
 		} else {
 			printUsage();
 			System.exit(1);
@@ -27,6 +53,6 @@ public final class Main {
 	}
 
 	private static void printUsage() {
-		System.err.println("Usage: pulse-java [perft]");
+		System.err.println("Usage: pulse-java [perft [--hash <size in MB>] [<depth> [<threads> [<fen>]]]]");
 	}
 }
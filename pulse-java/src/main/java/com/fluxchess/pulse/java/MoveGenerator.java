@@ -21,6 +21,7 @@ import static com.fluxchess.pulse.java.model.Castling.WHITE_QUEENSIDE;
 import static com.fluxchess.pulse.java.model.Color.BLACK;
 import static com.fluxchess.pulse.java.model.Color.WHITE;
 import static com.fluxchess.pulse.java.model.Color.opposite;
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
 import static com.fluxchess.pulse.java.model.MoveType.CASTLING;
 import static com.fluxchess.pulse.java.model.MoveType.ENPASSANT;
 import static com.fluxchess.pulse.java.model.MoveType.NORMAL;
@@ -31,72 +32,245 @@ import static com.fluxchess.pulse.java.model.Rank.r4;
 import static com.fluxchess.pulse.java.model.Rank.r5;
 import static com.fluxchess.pulse.java.model.Rank.r8;
 import static com.fluxchess.pulse.java.model.Square.N;
+import static com.fluxchess.pulse.java.model.Square.NOSQUARE;
 import static com.fluxchess.pulse.java.model.Square.S;
 import static com.fluxchess.pulse.java.model.Square.b1;
 import static com.fluxchess.pulse.java.model.Square.b8;
-import static com.fluxchess.pulse.java.model.Square.bishopDirections;
 import static com.fluxchess.pulse.java.model.Square.c1;
 import static com.fluxchess.pulse.java.model.Square.c8;
 import static com.fluxchess.pulse.java.model.Square.d1;
 import static com.fluxchess.pulse.java.model.Square.d8;
+import static com.fluxchess.pulse.java.model.Square.e1;
+import static com.fluxchess.pulse.java.model.Square.e8;
 import static com.fluxchess.pulse.java.model.Square.f1;
 import static com.fluxchess.pulse.java.model.Square.f8;
 import static com.fluxchess.pulse.java.model.Square.g1;
 import static com.fluxchess.pulse.java.model.Square.g8;
-import static com.fluxchess.pulse.java.model.Square.kingDirections;
-import static com.fluxchess.pulse.java.model.Square.knightDirections;
 import static com.fluxchess.pulse.java.model.Square.pawnDirections;
-import static com.fluxchess.pulse.java.model.Square.queenDirections;
-import static com.fluxchess.pulse.java.model.Square.rookDirections;
 
 final class MoveGenerator {
 
-	private final MoveList<MoveList.MoveEntry> moves = new MoveList<>(MoveList.MoveEntry.class);
+	// These are the move kinds we can generate
+	private static final int CAPTURES = 1;
+	private static final int QUIETS = 1 << 1;
+	private static final int ALL = CAPTURES | QUIETS;
+
+	// These are our stages for the staged move generation
+	private static final int STAGE_BEST = 0;
+	private static final int STAGE_CAPTURES_INIT = 1;
+	private static final int STAGE_CAPTURES = 2;
+	private static final int STAGE_KILLER1 = 3;
+	private static final int STAGE_KILLER2 = 4;
+	private static final int STAGE_COUNTERMOVE = 5;
+	private static final int STAGE_QUIETS_INIT = 6;
+	private static final int STAGE_QUIETS = 7;
+	private static final int STAGE_BAD_CAPTURES = 8;
+	private static final int STAGE_EVASIONS_INIT = 9;
+	private static final int STAGE_EVASIONS = 10;
+	private static final int STAGE_END = 11;
+
+	private final MoveList moves = new MoveList();
+
+	// Captures which lose material according to the static exchange
+	// evaluation. We return them after all other moves.
+	private final int[] badCaptures = new int[MoveList.MAX_MOVES];
+	private int badCapturesSize;
+
+	// Staged move generation state
+	private Position position;
+	private boolean isCheck;
+	private boolean generateQuiets;
+	private int bestMove;
+	private int killer1;
+	private int killer2;
+	private int counterMove;
+	private History history;
+	private int stage = STAGE_END;
+	private int index;
+
+	// We compute these once per position for the legal move generation
+	private int kingSquare;
+	private long checkers;
+	private long pinned;
+	private long evasions;
+
+	/**
+	 * Returns the strictly legal moves of the position. We use the checking
+	 * pieces and the pinned pieces to generate only legal moves, so we don't
+	 * have to make and undo every move.
+	 *
+	 * @param position the Position.
+	 * @param depth    the depth. We will generate only capturing moves for the
+	 *                 quiescent search if we are not in check.
+	 * @param isCheck  whether the active color is in check.
+	 * @return the legal moves.
+	 */
+	MoveList getLegalMoves(Position position, int depth, boolean isCheck) {
+		moves.size = 0;
 
-	MoveList<MoveList.MoveEntry> getLegalMoves(Position position, int depth, boolean isCheck) {
-		MoveList<MoveList.MoveEntry> legalMoves = getMoves(position, depth, isCheck);
+		initLegalMoves(position, isCheck);
+		addLegalMoves(moves, position, depth > 0 || isCheck ? ALL : CAPTURES);
 
-		int size = legalMoves.size;
-		legalMoves.size = 0;
-		for (int i = 0; i < size; i++) {
-			int move = legalMoves.entries[i].move;
+		moves.rateFromMVVLVA();
+		moves.sort();
 
-			position.makeMove(move);
-			if (!position.isCheck(opposite(position.activeColor))) {
-				legalMoves.entries[legalMoves.size++].move = move;
-			}
-			position.undoMove(move);
+		return moves;
+	}
+
+	/**
+	 * Returns all strictly legal moves of the position without rating and
+	 * sorting them. Perft only counts the moves, so the order doesn't matter.
+	 *
+	 * @param position the Position.
+	 * @param isCheck  whether the active color is in check.
+	 * @return the legal moves in generation order.
+	 */
+	MoveList getLegalMoves(Position position, boolean isCheck) {
+		moves.size = 0;
+
+		initLegalMoves(position, isCheck);
+		addLegalMoves(moves, position, ALL);
+
+		return moves;
+	}
+
+	/**
+	 * Returns the legal move from the origin square to the target square. We
+	 * build the move from the piece on the origin square and verify it like a
+	 * best move, so we don't have to generate all legal moves.
+	 *
+	 * @param position     the Position.
+	 * @param originSquare the origin square.
+	 * @param targetSquare the target square.
+	 * @param promotion    the promotion piece type or NOPIECETYPE.
+	 * @return the move or NOMOVE if there is no such legal move.
+	 */
+	int getLegalMove(Position position, int originSquare, int targetSquare, int promotion) {
+		int move = toMove(position, originSquare, targetSquare, promotion);
+		if (move == NOMOVE) {
+			return NOMOVE;
 		}
 
-		return legalMoves;
+		this.position = position;
+		this.isCheck = position.isCheck();
+		this.stage = STAGE_END;
+		initLegalMoves(position, isCheck);
+
+		return isPseudoLegal(move) && isLegal(move) ? move : NOMOVE;
 	}
 
-	MoveList<MoveList.MoveEntry> getMoves(Position position, int depth, boolean isCheck) {
+	/**
+	 * Returns the move of the piece on the origin square to the target square.
+	 * isPseudoLegal() trusts the geometry of a move, so we check here whether
+	 * the piece can reach the target square at all.
+	 *
+	 * @return the move or NOMOVE if the piece cannot move there.
+	 */
+	private static int toMove(Position position, int originSquare, int targetSquare, int promotion) {
+		int originPiece = position.board[originSquare];
+		if (originPiece == Piece.NOPIECE || Piece.getColor(originPiece) != position.activeColor) {
+			return NOMOVE;
+		}
+
+		int color = position.activeColor;
+		int targetPiece = position.board[targetSquare];
+		if (targetPiece != Piece.NOPIECE && Piece.getColor(targetPiece) == color) {
+			return NOMOVE;
+		}
+
+		long target = Bitboard.add(targetSquare, 0);
+		long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+
+		int type = NORMAL;
+		switch (Piece.getType(originPiece)) {
+			case PieceType.PAWN:
+				int direction = pawnDirections[color][0];
+				if ((Attacks.pawnAttacks[color][originSquare] & target) != 0) {
+					if (targetSquare == position.enPassantSquare) {
+						type = ENPASSANT;
+						targetPiece = position.board[targetSquare + (color == WHITE ? S : N)];
+					} else if (targetPiece == Piece.NOPIECE) {
+						return NOMOVE;
+					}
+				} else if (targetPiece != Piece.NOPIECE) {
+					return NOMOVE;
+				} else if (targetSquare == originSquare + 2 * direction) {
+					if (Square.getRank(targetSquare) != (color == WHITE ? r4 : r5)) {
+						return NOMOVE;
+					}
+					type = PAWNDOUBLE;
+				} else if (targetSquare != originSquare + direction) {
+					return NOMOVE;
+				}
+
+				if (Square.getRank(targetSquare) == (color == WHITE ? r8 : r1)) {
+					if (!PieceType.isValidPromotion(promotion)) {
+						return NOMOVE;
+					}
+					type = PAWNPROMOTION;
+				}
+				break;
+			case PieceType.KNIGHT:
+				if ((Attacks.knightAttacks[originSquare] & target) == 0) {
+					return NOMOVE;
+				}
+				break;
+			case PieceType.BISHOP:
+				if ((Attacks.bishopAttacks(originSquare, occupied) & target) == 0) {
+					return NOMOVE;
+				}
+				break;
+			case PieceType.ROOK:
+				if ((Attacks.rookAttacks(originSquare, occupied) & target) == 0) {
+					return NOMOVE;
+				}
+				break;
+			case PieceType.QUEEN:
+				if ((Attacks.queenAttacks(originSquare, occupied) & target) == 0) {
+					return NOMOVE;
+				}
+				break;
+			case PieceType.KING:
+				if ((Attacks.kingAttacks[originSquare] & target) == 0) {
+					// isPseudoLegal() checks the castling rights and the squares
+					if (originSquare != (color == WHITE ? e1 : e8)
+						|| (targetSquare != originSquare + 2 && targetSquare != originSquare - 2)) {
+						return NOMOVE;
+					}
+					type = CASTLING;
+				}
+				break;
+			default:
+				throw new IllegalArgumentException();
+		}
+
+		if (type != PAWNPROMOTION && promotion != PieceType.NOPIECETYPE) {
+			return NOMOVE;
+		}
+
+		return Move.valueOf(type, originSquare, targetSquare, originPiece, targetPiece,
+			type == PAWNPROMOTION ? promotion : PieceType.NOPIECETYPE);
+	}
+
+	MoveList getMoves(Position position, int depth, boolean isCheck) {
 		moves.size = 0;
 
 		if (depth > 0) {
 			// Generate main moves
 
-			addMoves(moves, position);
+			addMoves(moves, position, ALL);
 
 			if (!isCheck) {
-				int square = next(position.pieces[position.activeColor][PieceType.KING]);
-				addCastlingMoves(moves, square, position);
+				addCastlingMoves(moves, position, false);
 			}
 		} else {
 			// Generate quiescent moves
 
-			addMoves(moves, position);
-
-			if (!isCheck) {
-				int size = moves.size;
-				moves.size = 0;
-				for (int i = 0; i < size; i++) {
-					if (Move.getTargetPiece(moves.entries[i].move) != Piece.NOPIECE) {
-						// Add only capturing moves
-						moves.entries[moves.size++].move = moves.entries[i].move;
-					}
-				}
+			if (isCheck) {
+				addMoves(moves, position, ALL);
+			} else {
+				// Add only capturing moves
+				addMoves(moves, position, CAPTURES);
 			}
 		}
 
@@ -106,115 +280,471 @@ final class MoveGenerator {
 		return moves;
 	}
 
-	private void addMoves(MoveList<MoveList.MoveEntry> list, Position position) {
+	/**
+	 * Initializes the staged move generation. Use nextMove() to get the legal
+	 * moves one after another. We will return the best move first, then all
+	 * capturing moves which don't lose material, then the killer moves, the
+	 * countermove, all quiet moves ordered by their history and finally the
+	 * losing captures. If we are in check, we return all
+	 * evasions after the best move instead. A stage is only generated when we
+	 * get there, so we save a lot of work if a move produces a cut-off early.
+	 *
+	 * @param position    the Position.
+	 * @param depth       the depth. We will generate only capturing moves for
+	 *                    the quiescent search if we are not in check.
+	 * @param isCheck     whether the active color is in check.
+	 * @param bestMove    the best move to try first or NOMOVE.
+	 * @param killer1     the first killer move or NOMOVE.
+	 * @param killer2     the second killer move or NOMOVE.
+	 * @param counterMove the countermove of the previous move or NOMOVE.
+	 * @param history     the History to order the quiet moves.
+	 */
+	void initMoves(Position position, int depth, boolean isCheck,
+				   int bestMove, int killer1, int killer2, int counterMove, History history) {
+		this.position = position;
+		this.isCheck = isCheck;
+		this.generateQuiets = depth > 0 || isCheck;
+		this.bestMove = bestMove;
+		this.killer1 = killer1;
+		this.killer2 = killer2;
+		this.counterMove = counterMove;
+		this.history = history;
+		this.stage = STAGE_BEST;
+		this.index = 0;
+		moves.size = 0;
+		badCapturesSize = 0;
+
+		initLegalMoves(position, isCheck);
+	}
+
+	private void initLegalMoves(Position position, boolean isCheck) {
+		kingSquare = next(position.pieces[position.activeColor][PieceType.KING]);
+		checkers = isCheck ? position.getCheckers() : 0;
+		pinned = position.getPinned();
+
+		// If we are in check, we have to capture the checking piece or move
+		// between it and our king.
+		evasions = -1L;
+		if (checkers != 0) {
+			evasions = checkers | Attacks.between[kingSquare][next(checkers)];
+		}
+	}
+
+	/**
+	 * Returns the next legal move of the staged move generation.
+	 *
+	 * @return the next move or NOMOVE if there are no more moves.
+	 */
+	int nextMove() {
+		while (true) {
+			switch (stage) {
+				case STAGE_BEST:
+					stage = isCheck ? STAGE_EVASIONS_INIT : STAGE_CAPTURES_INIT;
+					if ((generateQuiets || isCapture(bestMove)) && isPseudoLegal(bestMove) && isLegal(bestMove)) {
+						return bestMove;
+					}
+					bestMove = NOMOVE;
+					break;
+				case STAGE_CAPTURES_INIT:
+					moves.size = 0;
+					addLegalMoves(moves, position, CAPTURES);
+					moves.rateFromMVVLVA();
+					index = 0;
+					stage = STAGE_CAPTURES;
+					break;
+				case STAGE_CAPTURES:
+					while (index < moves.size) {
+						// Select the best capturing move incrementally. Most of the time we
+						// will never look at the remaining moves.
+						moves.selectNext(index);
+						int move = moves.moves[index++];
+						if (move != bestMove) {
+							if (isLosingCapture(move)) {
+								badCaptures[badCapturesSize++] = move;
+							} else {
+								return move;
+							}
+						}
+					}
+					index = 0;
+					stage = generateQuiets ? STAGE_KILLER1 : STAGE_BAD_CAPTURES;
+					break;
+				case STAGE_KILLER1:
+					stage = STAGE_KILLER2;
+					if (killer1 != bestMove && !isCapture(killer1) && isPseudoLegal(killer1) && isLegal(killer1)) {
+						return killer1;
+					}
+					killer1 = NOMOVE;
+					break;
+				case STAGE_KILLER2:
+					stage = STAGE_COUNTERMOVE;
+					if (killer2 != bestMove && killer2 != killer1 && !isCapture(killer2)
+						&& isPseudoLegal(killer2) && isLegal(killer2)) {
+						return killer2;
+					}
+					killer2 = NOMOVE;
+					break;
+				case STAGE_COUNTERMOVE:
+					stage = STAGE_QUIETS_INIT;
+					if (counterMove != bestMove && counterMove != killer1 && counterMove != killer2
+						&& !isCapture(counterMove) && isPseudoLegal(counterMove) && isLegal(counterMove)) {
+						return counterMove;
+					}
+					counterMove = NOMOVE;
+					break;
+				case STAGE_QUIETS_INIT:
+					moves.size = 0;
+					addLegalMoves(moves, position, QUIETS);
+					moves.rateFromHistory(history, position.activeColor);
+					moves.sort();
+					index = 0;
+					stage = STAGE_QUIETS;
+					break;
+				case STAGE_QUIETS:
+					while (index < moves.size) {
+						int move = moves.moves[index++];
+						if (move != bestMove && move != killer1 && move != killer2 && move != counterMove) {
+							return move;
+						}
+					}
+					index = 0;
+					stage = STAGE_BAD_CAPTURES;
+					break;
+				case STAGE_BAD_CAPTURES:
+					if (index < badCapturesSize) {
+						return badCaptures[index++];
+					}
+					stage = STAGE_END;
+					break;
+				case STAGE_EVASIONS_INIT:
+					moves.size = 0;
+					addLegalMoves(moves, position, ALL);
+					moves.rateFromMVVLVA();
+					moves.sort();
+					index = 0;
+					stage = STAGE_EVASIONS;
+					break;
+				case STAGE_EVASIONS:
+					while (index < moves.size) {
+						int move = moves.moves[index++];
+						if (move != bestMove) {
+							return move;
+						}
+					}
+					stage = STAGE_END;
+					break;
+				case STAGE_END:
+					return NOMOVE;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the last move of nextMove() was a capture which loses
+	 * material. All moves after it are losing captures as well.
+	 */
+	boolean isBadCaptureStage() {
+		return stage == STAGE_BAD_CAPTURES;
+	}
+
+	private static boolean isCapture(int move) {
+		return Move.getTargetPiece(move) != Piece.NOPIECE;
+	}
+
+	/**
+	 * Returns whether the capture loses material. Capturing a piece which is
+	 * at least as valuable as our own piece never loses, so we only need the
+	 * static exchange evaluation for the other captures.
+	 */
+	private boolean isLosingCapture(int move) {
+		int originValue = PieceType.getValue(Piece.getType(Move.getOriginPiece(move)));
+		int targetValue = PieceType.getValue(Piece.getType(Move.getTargetPiece(move)));
+
+		return targetValue < originValue && position.see(move) < 0;
+	}
+
+	/**
+	 * Returns whether the move is pseudo-legal in the current position. Best
+	 * moves and killer moves come from other positions, so we have to verify
+	 * them before we return them.
+	 */
+	private boolean isPseudoLegal(int move) {
+		if (move == NOMOVE) {
+			return false;
+		}
+
+		int type = Move.getType(move);
+		int originSquare = Move.getOriginSquare(move);
+		int targetSquare = Move.getTargetSquare(move);
+		int originPiece = Move.getOriginPiece(move);
+		int targetPiece = Move.getTargetPiece(move);
+
+		// The move was generated for the same piece on the origin square, so the
+		// geometry of the move is valid. We only have to check the board.
+		if (position.board[originSquare] != originPiece || Piece.getColor(originPiece) != position.activeColor) {
+			return false;
+		}
+
+		switch (type) {
+			case NORMAL:
+			case PAWNPROMOTION:
+				if (position.board[targetSquare] != targetPiece) {
+					return false;
+				}
+				if (PieceType.isSliding(Piece.getType(originPiece))) {
+					// We know the move follows a line of the piece, so the queen attacks
+					// tell us whether the squares in between are empty.
+					long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+					return (Attacks.queenAttacks(originSquare, occupied) & Bitboard.add(targetSquare, 0)) != 0;
+				}
+				return true;
+			case PAWNDOUBLE:
+				return position.board[targetSquare] == Piece.NOPIECE
+					&& position.board[(originSquare + targetSquare) / 2] == Piece.NOPIECE;
+			case ENPASSANT:
+				return targetSquare == position.enPassantSquare;
+			case CASTLING:
+				return !isCheck && isCastlingAllowed(targetSquare, position);
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Returns whether the pseudo-legal move leaves our king safe. We use the
+	 * checking pieces and the pinned pieces of the current position.
+	 */
+	private boolean isLegal(int move) {
+		int type = Move.getType(move);
+		int originSquare = Move.getOriginSquare(move);
+		int targetSquare = Move.getTargetSquare(move);
+
+		if (originSquare == kingSquare) {
+			if (type == CASTLING) {
+				return checkers == 0 && !position.isAttacked(targetSquare, opposite(position.activeColor));
+			}
+
+			long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+			return !position.isAttacked(targetSquare, opposite(position.activeColor), Bitboard.remove(kingSquare, occupied));
+		}
+
+		// Only the king can escape a double check
+		if (Bitboard.size(checkers) > 1) {
+			return false;
+		}
+
+		if (type == ENPASSANT) {
+			return isLegalEnPassant(move, kingSquare, position);
+		}
+
+		return (Bitboard.add(targetSquare, 0) & evasions & getPinMask(originSquare, kingSquare, pinned)) != 0;
+	}
+
+	private void addLegalMoves(MoveList list, Position position, int kinds) {
 		int activeColor = position.activeColor;
+		int oppositeColor = opposite(activeColor);
+		long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+
+		// Select the target squares for the move kinds
+		long targets = 0;
+		if ((kinds & CAPTURES) != 0) {
+			targets |= position.occupancy[oppositeColor];
+		}
+		if ((kinds & QUIETS) != 0) {
+			targets |= ~occupied;
+		}
+
+		// The king must not move to an attacked square. We remove the king from
+		// the occupancy, so it cannot hide behind itself from a sliding piece.
+		long kingOccupied = Bitboard.remove(kingSquare, occupied);
+		int kingPiece = position.board[kingSquare];
+		for (long squares = Attacks.kingAttacks[kingSquare] & targets; squares != 0; squares = remainder(squares)) {
+			int targetSquare = next(squares);
+			if (!position.isAttacked(targetSquare, oppositeColor, kingOccupied)) {
+				list.moves[list.size++] = Move.valueOf(
+					NORMAL, kingSquare, targetSquare, kingPiece, position.board[targetSquare], PieceType.NOPIECETYPE);
+			}
+		}
+
+		// Only the king can escape a double check
+		if (Bitboard.size(checkers) > 1) {
+			return;
+		}
 
 		for (long squares = position.pieces[activeColor][PieceType.PAWN]; squares != 0; squares = remainder(squares)) {
 			int square = next(squares);
-			addPawnMoves(list, square, position);
+			int start = list.size;
+			addPawnMoves(list, square, position, kinds);
+
+			// Remove the pawn moves which leave our king in check
+			long allowed = evasions & getPinMask(square, kingSquare, pinned);
+			int size = list.size;
+			list.size = start;
+			for (int i = start; i < size; i++) {
+				int move = list.moves[i];
+				if (Move.getType(move) == ENPASSANT
+					? isLegalEnPassant(move, kingSquare, position)
+					: (Bitboard.add(Move.getTargetSquare(move), 0) & allowed) != 0) {
+					list.moves[list.size++] = move;
+				}
+			}
 		}
-		for (long squares = position.pieces[activeColor][PieceType.KNIGHT]; squares != 0; squares = remainder(squares)) {
+
+		targets &= evasions;
+
+		// A pinned knight can never move
+		for (long squares = position.pieces[activeColor][PieceType.KNIGHT] & ~pinned; squares != 0; squares = remainder(squares)) {
 			int square = next(squares);
-			addMoves(list, square, knightDirections, position);
+			addMoves(list, square, Attacks.knightAttacks[square] & targets, position);
 		}
 		for (long squares = position.pieces[activeColor][PieceType.BISHOP]; squares != 0; squares = remainder(squares)) {
 			int square = next(squares);
-			addMoves(list, square, bishopDirections, position);
+			addMoves(list, square,
+				Attacks.bishopAttacks(square, occupied) & targets & getPinMask(square, kingSquare, pinned), position);
 		}
 		for (long squares = position.pieces[activeColor][PieceType.ROOK]; squares != 0; squares = remainder(squares)) {
 			int square = next(squares);
-			addMoves(list, square, rookDirections, position);
+			addMoves(list, square,
+				Attacks.rookAttacks(square, occupied) & targets & getPinMask(square, kingSquare, pinned), position);
 		}
 		for (long squares = position.pieces[activeColor][PieceType.QUEEN]; squares != 0; squares = remainder(squares)) {
 			int square = next(squares);
-			addMoves(list, square, queenDirections, position);
+			addMoves(list, square,
+				Attacks.queenAttacks(square, occupied) & targets & getPinMask(square, kingSquare, pinned), position);
+		}
+
+		if ((kinds & QUIETS) != 0 && checkers == 0) {
+			addCastlingMoves(list, position, true);
 		}
-		int square = next(position.pieces[activeColor][PieceType.KING]);
-		addMoves(list, square, kingDirections, position);
 	}
 
-	private void addMoves(MoveList<MoveList.MoveEntry> list, int originSquare, int[] directions, Position position) {
-		int originPiece = position.board[originSquare];
-		boolean sliding = PieceType.isSliding(Piece.getType(originPiece));
-		int oppositeColor = opposite(Piece.getColor(originPiece));
+	/**
+	 * Returns the squares a piece may move to with respect to pins. A pinned
+	 * piece may only move along the line through its king.
+	 */
+	private static long getPinMask(int square, int kingSquare, long pinned) {
+		return (Bitboard.add(square, 0) & pinned) != 0 ? Attacks.line[kingSquare][square] : -1L;
+	}
 
-		// Go through all move directions for this piece
-		for (int direction : directions) {
-			int targetSquare = originSquare + direction;
+	/**
+	 * Returns whether the en passant move leaves our king in check. Two pawns
+	 * leave the rank at once, so we test the king with the new occupancy.
+	 */
+	private static boolean isLegalEnPassant(int move, int kingSquare, Position position) {
+		int originSquare = Move.getOriginSquare(move);
+		int targetSquare = Move.getTargetSquare(move);
+		int captureSquare = targetSquare + (position.activeColor == WHITE ? S : N);
+
+		long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
+		occupied = Bitboard.add(targetSquare, Bitboard.remove(captureSquare, Bitboard.remove(originSquare, occupied)));
+
+		// The captured pawn does not attack anymore
+		return (position.getAttackers(kingSquare, opposite(position.activeColor), occupied)
+			& ~Bitboard.add(captureSquare, 0)) == 0;
+	}
 
-			// Check if we're still on the board
-			while (Square.isValid(targetSquare)) {
-				int targetPiece = position.board[targetSquare];
+	private void addMoves(MoveList list, Position position, int kinds) {
+		int activeColor = position.activeColor;
+		long occupied = position.occupancy[WHITE] | position.occupancy[BLACK];
 
-				if (targetPiece == Piece.NOPIECE) {
-					// quiet move
-					list.entries[list.size++].move = Move.valueOf(
-						NORMAL, originSquare, targetSquare, originPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
+		// Select the target squares for the move kinds
+		long targets = 0;
+		if ((kinds & CAPTURES) != 0) {
+			targets |= position.occupancy[opposite(activeColor)];
+		}
+		if ((kinds & QUIETS) != 0) {
+			targets |= ~occupied;
+		}
 
-					if (!sliding) {
-						break;
-					}
+		for (long squares = position.pieces[activeColor][PieceType.PAWN]; squares != 0; squares = remainder(squares)) {
+			int square = next(squares);
+			addPawnMoves(list, square, position, kinds);
+		}
+		for (long squares = position.pieces[activeColor][PieceType.KNIGHT]; squares != 0; squares = remainder(squares)) {
+			int square = next(squares);
+			addMoves(list, square, Attacks.knightAttacks[square] & targets, position);
+		}
+		for (long squares = position.pieces[activeColor][PieceType.BISHOP]; squares != 0; squares = remainder(squares)) {
+			int square = next(squares);
+			addMoves(list, square, Attacks.bishopAttacks(square, occupied) & targets, position);
+		}
+		for (long squares = position.pieces[activeColor][PieceType.ROOK]; squares != 0; squares = remainder(squares)) {
+			int square = next(squares);
+			addMoves(list, square, Attacks.rookAttacks(square, occupied) & targets, position);
+		}
+		for (long squares = position.pieces[activeColor][PieceType.QUEEN]; squares != 0; squares = remainder(squares)) {
+			int square = next(squares);
+			addMoves(list, square, Attacks.queenAttacks(square, occupied) & targets, position);
+		}
+		int square = next(position.pieces[activeColor][PieceType.KING]);
+		addMoves(list, square, Attacks.kingAttacks[square] & targets, position);
+	}
 
-					targetSquare += direction;
-				} else {
-					if (Piece.getColor(targetPiece) == oppositeColor) {
-						// capturing move
-						list.entries[list.size++].move = Move.valueOf(
-							NORMAL, originSquare, targetSquare, originPiece, targetPiece, PieceType.NOPIECETYPE);
-					}
+	private void addMoves(MoveList list, int originSquare, long targetSquares, Position position) {
+		int originPiece = position.board[originSquare];
 
-					break;
-				}
-			}
+		for (long squares = targetSquares; squares != 0; squares = remainder(squares)) {
+			int targetSquare = next(squares);
+
+			// The target piece is NOPIECE for quiet moves
+			list.moves[list.size++] = Move.valueOf(
+				NORMAL, originSquare, targetSquare, originPiece, position.board[targetSquare], PieceType.NOPIECETYPE);
 		}
 	}
 
-	private void addPawnMoves(MoveList<MoveList.MoveEntry> list, int pawnSquare, Position position) {
+	private void addPawnMoves(MoveList list, int pawnSquare, Position position, int kinds) {
 		int pawnPiece = position.board[pawnSquare];
 		int pawnColor = Piece.getColor(pawnPiece);
 
-		// Generate only capturing moves first (i = 1)
-		for (int i = 1; i < pawnDirections[pawnColor].length; i++) {
-			int direction = pawnDirections[pawnColor][i];
-
-			int targetSquare = pawnSquare + direction;
-			if (Square.isValid(targetSquare)) {
-				int targetPiece = position.board[targetSquare];
-
-				if (targetPiece != Piece.NOPIECE) {
-					if (Piece.getColor(targetPiece) == opposite(pawnColor)) {
-						// Capturing move
-
-						if ((pawnColor == WHITE && Square.getRank(targetSquare) == r8)
-							|| (pawnColor == BLACK && Square.getRank(targetSquare) == r1)) {
-							// Pawn promotion capturing move
-
-							list.entries[list.size++].move = Move.valueOf(
-								PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.QUEEN);
-							list.entries[list.size++].move = Move.valueOf(
-								PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.ROOK);
-							list.entries[list.size++].move = Move.valueOf(
-								PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.BISHOP);
-							list.entries[list.size++].move = Move.valueOf(
-								PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.KNIGHT);
-						} else {
-							// Normal capturing move
-
-							list.entries[list.size++].move = Move.valueOf(
-								NORMAL, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.NOPIECETYPE);
-						}
-					}
-				} else if (targetSquare == position.enPassantSquare) {
-					// En passant move
-					int captureSquare = targetSquare + (pawnColor == WHITE ? S : N);
-					targetPiece = position.board[captureSquare];
+		if ((kinds & CAPTURES) != 0) {
+			addPawnCaptures(list, pawnSquare, pawnPiece, pawnColor, position);
+		}
+		if ((kinds & QUIETS) != 0) {
+			addPawnQuiets(list, pawnSquare, pawnPiece, pawnColor, position);
+		}
+	}
 
-					list.entries[list.size++].move = Move.valueOf(
-						ENPASSANT, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.NOPIECETYPE);
-				}
+	private void addPawnCaptures(MoveList list, int pawnSquare, int pawnPiece, int pawnColor, Position position) {
+		long attacks = Attacks.pawnAttacks[pawnColor][pawnSquare];
+
+		for (long squares = attacks & position.occupancy[opposite(pawnColor)]; squares != 0; squares = remainder(squares)) {
+			int targetSquare = next(squares);
+			int targetPiece = position.board[targetSquare];
+
+			if ((pawnColor == WHITE && Square.getRank(targetSquare) == r8)
+				|| (pawnColor == BLACK && Square.getRank(targetSquare) == r1)) {
+				// Pawn promotion capturing move
+
+				list.moves[list.size++] = Move.valueOf(
+					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.QUEEN);
+				list.moves[list.size++] = Move.valueOf(
+					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.ROOK);
+				list.moves[list.size++] = Move.valueOf(
+					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.BISHOP);
+				list.moves[list.size++] = Move.valueOf(
+					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.KNIGHT);
+			} else {
+				// Normal capturing move
+
+				list.moves[list.size++] = Move.valueOf(
+					NORMAL, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.NOPIECETYPE);
 			}
 		}
 
+		int targetSquare = position.enPassantSquare;
+		if (targetSquare != NOSQUARE && (attacks & Bitboard.add(targetSquare, 0)) != 0) {
+			// En passant move
+			int captureSquare = targetSquare + (pawnColor == WHITE ? S : N);
+			int targetPiece = position.board[captureSquare];
+
+			list.moves[list.size++] = Move.valueOf(
+				ENPASSANT, pawnSquare, targetSquare, pawnPiece, targetPiece, PieceType.NOPIECETYPE);
+		}
+	}
+
+	private void addPawnQuiets(MoveList list, int pawnSquare, int pawnPiece, int pawnColor, Position position) {
 		// Generate non-capturing moves
 		int direction = pawnDirections[pawnColor][0];
 
@@ -225,18 +755,18 @@ final class MoveGenerator {
 				|| (pawnColor == BLACK && Square.getRank(targetSquare) == r1)) {
 				// Pawn promotion move
 
-				list.entries[list.size++].move = Move.valueOf(
+				list.moves[list.size++] = Move.valueOf(
 					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.QUEEN);
-				list.entries[list.size++].move = Move.valueOf(
+				list.moves[list.size++] = Move.valueOf(
 					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.ROOK);
-				list.entries[list.size++].move = Move.valueOf(
+				list.moves[list.size++] = Move.valueOf(
 					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.BISHOP);
-				list.entries[list.size++].move = Move.valueOf(
+				list.moves[list.size++] = Move.valueOf(
 					PAWNPROMOTION, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.KNIGHT);
 			} else {
 				// Normal move
 
-				list.entries[list.size++].move = Move.valueOf(
+				list.moves[list.size++] = Move.valueOf(
 					NORMAL, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 
 				// Move another rank forward
@@ -246,7 +776,7 @@ final class MoveGenerator {
 						|| (pawnColor == BLACK && Square.getRank(targetSquare) == r5)) {
 						// Pawn double move
 
-						list.entries[list.size++].move = Move.valueOf(
+						list.moves[list.size++] = Move.valueOf(
 							PAWNDOUBLE, pawnSquare, targetSquare, pawnPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 					}
 				}
@@ -254,45 +784,69 @@ final class MoveGenerator {
 		}
 	}
 
-	private void addCastlingMoves(MoveList<MoveList.MoveEntry> list, int kingSquare, Position position) {
+	/**
+	 * Adds the castling moves. If legal is set, we also test whether the king
+	 * target square is attacked. The king must not be in check.
+	 */
+	private void addCastlingMoves(MoveList list, Position position, boolean legal) {
+		int kingSquare = next(position.pieces[position.activeColor][PieceType.KING]);
 		int kingPiece = position.board[kingSquare];
 
 		if (Piece.getColor(kingPiece) == WHITE) {
-			// Do not test g1 whether it is attacked as we will test it in isLegal()
-			if ((position.castlingRights & WHITE_KINGSIDE) != NOCASTLING
-				&& position.board[f1] == Piece.NOPIECE
-				&& position.board[g1] == Piece.NOPIECE
-				&& !position.isAttacked(f1, BLACK)) {
-				list.entries[list.size++].move = Move.valueOf(
+			if (isCastlingAllowed(g1, position) && (!legal || !position.isAttacked(g1, BLACK))) {
+				list.moves[list.size++] = Move.valueOf(
 					CASTLING, kingSquare, g1, kingPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 			}
-			// Do not test c1 whether it is attacked as we will test it in isLegal()
-			if ((position.castlingRights & WHITE_QUEENSIDE) != NOCASTLING
-				&& position.board[b1] == Piece.NOPIECE
-				&& position.board[c1] == Piece.NOPIECE
-				&& position.board[d1] == Piece.NOPIECE
-				&& !position.isAttacked(d1, BLACK)) {
-				list.entries[list.size++].move = Move.valueOf(
+			if (isCastlingAllowed(c1, position) && (!legal || !position.isAttacked(c1, BLACK))) {
+				list.moves[list.size++] = Move.valueOf(
 					CASTLING, kingSquare, c1, kingPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 			}
 		} else {
-			// Do not test g8 whether it is attacked as we will test it in isLegal()
-			if ((position.castlingRights & BLACK_KINGSIDE) != NOCASTLING
-				&& position.board[f8] == Piece.NOPIECE
-				&& position.board[g8] == Piece.NOPIECE
-				&& !position.isAttacked(f8, WHITE)) {
-				list.entries[list.size++].move = Move.valueOf(
+			if (isCastlingAllowed(g8, position) && (!legal || !position.isAttacked(g8, WHITE))) {
+				list.moves[list.size++] = Move.valueOf(
 					CASTLING, kingSquare, g8, kingPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 			}
-			// Do not test c8 whether it is attacked as we will test it in isLegal()
-			if ((position.castlingRights & BLACK_QUEENSIDE) != NOCASTLING
-				&& position.board[b8] == Piece.NOPIECE
-				&& position.board[c8] == Piece.NOPIECE
-				&& position.board[d8] == Piece.NOPIECE
-				&& !position.isAttacked(d8, WHITE)) {
-				list.entries[list.size++].move = Move.valueOf(
+			if (isCastlingAllowed(c8, position) && (!legal || !position.isAttacked(c8, WHITE))) {
+				list.moves[list.size++] = Move.valueOf(
 					CASTLING, kingSquare, c8, kingPiece, Piece.NOPIECE, PieceType.NOPIECETYPE);
 			}
 		}
 	}
+
+	/**
+	 * Returns whether castling to the king target square is allowed. The king
+	 * must not be in check, which is not tested here.
+	 */
+	private static boolean isCastlingAllowed(int kingTargetSquare, Position position) {
+		switch (kingTargetSquare) {
+			case g1:
+				// Do not test g1 whether it is attacked as we will test it in isLegal()
+				return (position.castlingRights & WHITE_KINGSIDE) != NOCASTLING
+					&& position.board[f1] == Piece.NOPIECE
+					&& position.board[g1] == Piece.NOPIECE
+					&& !position.isAttacked(f1, BLACK);
+			case c1:
+				// Do not test c1 whether it is attacked as we will test it in isLegal()
+				return (position.castlingRights & WHITE_QUEENSIDE) != NOCASTLING
+					&& position.board[b1] == Piece.NOPIECE
+					&& position.board[c1] == Piece.NOPIECE
+					&& position.board[d1] == Piece.NOPIECE
+					&& !position.isAttacked(d1, BLACK);
+			case g8:
+				// Do not test g8 whether it is attacked as we will test it in isLegal()
+				return (position.castlingRights & BLACK_KINGSIDE) != NOCASTLING
+					&& position.board[f8] == Piece.NOPIECE
+					&& position.board[g8] == Piece.NOPIECE
+					&& !position.isAttacked(f8, WHITE);
+			case c8:
+				// Do not test c8 whether it is attacked as we will test it in isLegal()
+				return (position.castlingRights & BLACK_QUEENSIDE) != NOCASTLING
+					&& position.board[b8] == Piece.NOPIECE
+					&& position.board[c8] == Piece.NOPIECE
+					&& position.board[d8] == Piece.NOPIECE
+					&& !position.isAttacked(d8, WHITE);
+			default:
+				return false;
+		}
+	}
 }
@@ -8,24 +8,25 @@ package com.fluxchess.pulse.java;
 
 import com.fluxchess.pulse.java.model.Depth;
 import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.MoveType;
 import com.fluxchess.pulse.java.model.Piece;
 import com.fluxchess.pulse.java.model.PieceType;
 import com.fluxchess.pulse.java.model.Value;
 
-import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-
 import static com.fluxchess.pulse.java.model.Move.NOMOVE;
 
 /**
- * This class stores our moves for a specific position. For the root node we
- * will populate pv for every root move.
+ * This class stores our moves for a specific position. We keep the moves and
+ * their values in two parallel int arrays, so we don't have to allocate an
+ * object for every entry. The root moves with their pv are stored in a
+ * RootList.
  */
-final class MoveList<T extends MoveList.MoveEntry> {
+final class MoveList {
 
-	private static final int MAX_MOVES = 256;
+	static final int MAX_MOVES = 256;
 
-	final T[] entries;
+	final int[] moves = new int[MAX_MOVES];
+	final int[] values = new int[MAX_MOVES];
 	int size = 0;
 
 	static final class MoveVariation {
@@ -34,27 +35,43 @@ final class MoveList<T extends MoveList.MoveEntry> {
 		int size = 0;
 	}
 
-	static class MoveEntry {
+	static final class RootEntry {
 
 		int move = NOMOVE;
 		int value = Value.NOVALUE;
+		final MoveVariation pv = new MoveVariation();
 	}
 
-	static final class RootEntry extends MoveEntry {
+	/**
+	 * This class stores the root moves. We will populate pv for every root
+	 * move.
+	 */
+	static final class RootList {
 
-		final MoveVariation pv = new MoveVariation();
-	}
+		final RootEntry[] entries = new RootEntry[MAX_MOVES];
+		int size = 0;
 
-	MoveList(Class<T> clazz) {
-		@SuppressWarnings("unchecked") final T[] entries = (T[]) Array.newInstance(clazz, MAX_MOVES);
-		this.entries = entries;
-		try {
+		RootList() {
 			for (int i = 0; i < entries.length; i++) {
-				entries[i] = clazz.getDeclaredConstructor().newInstance();
+				entries[i] = new RootEntry();
+			}
+		}
+
+		/**
+		 * Sorts the root move list using a stable insertion sort.
+		 */
+		void sort() {
+			for (int i = 1; i < size; i++) {
+				RootEntry entry = entries[i];
+
+				int j = i;
+				while ((j > 0) && (entries[j - 1].value < entry.value)) {
+					entries[j] = entries[j - 1];
+					j--;
+				}
+
+				entries[j] = entry;
 			}
-		} catch (InstantiationException | IllegalAccessException | NoSuchMethodException |
-				 InvocationTargetException e) {
-			throw new IllegalStateException(e);
 		}
 	}
 
@@ -63,15 +80,61 @@ final class MoveList<T extends MoveList.MoveEntry> {
 	 */
 	void sort() {
 		for (int i = 1; i < size; i++) {
-			T entry = entries[i];
+			int move = moves[i];
+			int value = values[i];
 
 			int j = i;
-			while ((j > 0) && (entries[j - 1].value < entry.value)) {
-				entries[j] = entries[j - 1];
+			while ((j > 0) && (values[j - 1] < value)) {
+				moves[j] = moves[j - 1];
+				values[j] = values[j - 1];
 				j--;
 			}
 
-			entries[j] = entry;
+			moves[j] = move;
+			values[j] = value;
+		}
+	}
+
+	/**
+	 * Selects the entry with the highest value from index to the end of the
+	 * list and moves it to index. Equal values keep their order.
+	 *
+	 * @param index the index of the next entry.
+	 */
+	void selectNext(int index) {
+		int best = index;
+		for (int i = index + 1; i < size; i++) {
+			if (values[i] > values[best]) {
+				best = i;
+			}
+		}
+
+		if (best != index) {
+			int move = moves[best];
+			int value = values[best];
+			System.arraycopy(moves, index, moves, index + 1, best - index);
+			System.arraycopy(values, index, values, index + 1, best - index);
+			moves[index] = move;
+			values[index] = value;
+		}
+	}
+
+	/**
+	 * Rates the quiet moves in the list by their history. Promotions are always
+	 * rated higher than all other quiet moves.
+	 *
+	 * @param history the History.
+	 * @param color   the color of the moves.
+	 */
+	void rateFromHistory(History history, int color) {
+		for (int i = 0; i < size; i++) {
+			int move = moves[i];
+
+			if (Move.getType(move) == MoveType.PAWNPROMOTION) {
+				values[i] = History.MAX_VALUE + PieceType.getValue(Move.getPromotion(move));
+			} else {
+				values[i] = history.get(color, move);
+			}
 		}
 	}
 
@@ -80,7 +143,7 @@ final class MoveList<T extends MoveList.MoveEntry> {
 	 */
 	void rateFromMVVLVA() {
 		for (int i = 0; i < size; i++) {
-			int move = entries[i].move;
+			int move = moves[i];
 			int value = 0;
 
 			int piecetypeValue = PieceType.getValue(Piece.getType(Move.getOriginPiece(move)));
@@ -91,7 +154,7 @@ final class MoveList<T extends MoveList.MoveEntry> {
 				value += 10 * PieceType.getValue(Piece.getType(target));
 			}
 
-			entries[i].value = value;
+			values[i] = value;
 		}
 	}
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Color;
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static com.fluxchess.pulse.java.model.Color.BLACK;
+import static com.fluxchess.pulse.java.model.Color.opposite;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * This class holds an efficiently updatable neural network. The input layer
+ * has one feature per color, piece type and square, seen from the view of
+ * each color. Its output, the accumulator, is updated incrementally by
+ * Position.put() and remove(). The accumulators of both colors are clipped
+ * and fed into a single output neuron, starting with the color to move. The
+ * loops over the hidden layer run in a NetworkKernel.
+ * <p>
+ * The weights are quantized to shorts and stored as little-endian in the
+ * following order. The hidden layer size is derived from the file size.
+ * <ul>
+ * <li>feature weights: INPUT_SIZE * hiddenSize</li>
+ * <li>feature biases: hiddenSize</li>
+ * <li>output weights: 2 * hiddenSize</li>
+ * <li>output bias: 1</li>
+ * </ul>
+ */
+final class Network {
+
+	static final int INPUT_SIZE = Color.values.length * PieceType.values.length * 64;
+
+	// The quantization of the accumulator and of the output weights, and the
+	// factor to scale the output into centipawns
+	static final int QA = 255;
+	static final int QB = 64;
+	static final int SCALE = 400;
+
+	// We use the Vector API if the JVM provides it
+	private static final NetworkKernel defaultKernel = NetworkKernel.newInstance();
+
+	final int hiddenSize;
+
+	private final NetworkKernel kernel;
+	private final short[] featureWeights;
+	private final short[] featureBiases;
+	private final short[] outputWeights;
+	private final int outputBias;
+
+	Network(short[] featureWeights, short[] featureBiases, short[] outputWeights, short outputBias) {
+		this(defaultKernel, featureWeights, featureBiases, outputWeights, outputBias);
+	}
+
+	Network(
+		NetworkKernel kernel, short[] featureWeights, short[] featureBiases, short[] outputWeights, short outputBias) {
+		hiddenSize = featureBiases.length;
+		if (hiddenSize == 0
+			|| featureWeights.length != INPUT_SIZE * hiddenSize
+			|| outputWeights.length != 2 * hiddenSize) {
+			throw new IllegalArgumentException();
+		}
+
+		this.kernel = kernel;
+		this.featureWeights = featureWeights;
+		this.featureBiases = featureBiases;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+	}
+
+	/**
+	 * Loads the weights from a file. We map the file into memory and copy
+	 * the weights onto the heap, so the hot loops work on plain arrays.
+	 *
+	 * @param path the path of the weights file.
+	 * @return the network.
+	 * @throws IOException if the file cannot be read or has the wrong size.
+	 */
+	static Network load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, READ)) {
+			long size = channel.size() / Short.BYTES;
+			long hiddenSize = size / (INPUT_SIZE + 3);
+			if (channel.size() % Short.BYTES != 0 || size % (INPUT_SIZE + 3) != 1
+				|| hiddenSize < 1 || INPUT_SIZE * hiddenSize > Integer.MAX_VALUE) {
+				throw new IOException("Invalid network size: " + channel.size() + " bytes");
+			}
+
+			ShortBuffer buffer = channel.map(READ_ONLY, 0, channel.size())
+				.order(ByteOrder.LITTLE_ENDIAN)
+				.asShortBuffer();
+
+			short[] featureWeights = new short[(int) (INPUT_SIZE * hiddenSize)];
+			short[] featureBiases = new short[(int) hiddenSize];
+			short[] outputWeights = new short[(int) (2 * hiddenSize)];
+			buffer.get(featureWeights);
+			buffer.get(featureBiases);
+			buffer.get(outputWeights);
+
+			return new Network(featureWeights, featureBiases, outputWeights, buffer.get());
+		}
+	}
+
+	short[][] newAccumulators() {
+		return new short[Color.values.length][hiddenSize];
+	}
+
+	/**
+	 * Computes the accumulators of the position from scratch.
+	 */
+	void refresh(Position position, short[][] accumulators) {
+		for (int color : Color.values) {
+			System.arraycopy(featureBiases, 0, accumulators[color], 0, hiddenSize);
+		}
+
+		for (int color : Color.values) {
+			for (int piecetype : PieceType.values) {
+				for (long squares = position.pieces[color][piecetype]; squares != 0; squares = Bitboard.remainder(squares)) {
+					add(accumulators, Piece.valueOf(color, piecetype), Bitboard.next(squares));
+				}
+			}
+		}
+	}
+
+	void add(short[][] accumulators, int piece, int square) {
+		for (int color : Color.values) {
+			kernel.add(accumulators[color], featureWeights, getFeature(color, piece, square) * hiddenSize);
+		}
+	}
+
+	void remove(short[][] accumulators, int piece, int square) {
+		for (int color : Color.values) {
+			kernel.subtract(accumulators[color], featureWeights, getFeature(color, piece, square) * hiddenSize);
+		}
+	}
+
+	/**
+	 * Evaluates the accumulators from the view of the color.
+	 *
+	 * @param accumulators the accumulators of the position.
+	 * @param color        the color to move.
+	 * @return the evaluation value in centipawns.
+	 */
+	int evaluate(short[][] accumulators, int color) {
+		long output = kernel.dot(accumulators[color], outputWeights, 0)
+			+ kernel.dot(accumulators[opposite(color)], outputWeights, hiddenSize);
+
+		return (int) ((output + outputBias) * SCALE / (QA * QB));
+	}
+
+	/**
+	 * Returns the input feature of a piece at the square from the view of the
+	 * color. Black sees the board with the ranks mirrored.
+	 */
+	private static int getFeature(int color, int piece, int square) {
+		int side = Piece.getColor(piece) == color ? 0 : 1;
+		int bitSquare = Bitboard.toBitSquare(square);
+		if (color == BLACK) {
+			bitSquare ^= 56;
+		}
+
+		return (side * PieceType.values.length + Piece.getType(piece)) * 64 + bitSquare;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+/**
+ * This interface computes the loops of the Network over the hidden layer.
+ * ScalarNetworkKernel runs on every JVM. VectorNetworkKernel uses the
+ * incubating Vector API. It is compiled in the vector source set and can
+ * only be loaded if the JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ */
+interface NetworkKernel {
+
+	/**
+	 * Adds the weights starting at the offset to the accumulator.
+	 */
+	void add(short[] accumulator, short[] weights, int offset);
+
+	/**
+	 * Subtracts the weights starting at the offset from the accumulator.
+	 */
+	void subtract(short[] accumulator, short[] weights, int offset);
+
+	/**
+	 * Returns the dot product of the accumulator clipped to [0, Network.QA]
+	 * and the weights starting at the offset.
+	 */
+	long dot(short[] accumulator, short[] weights, int offset);
+
+	/**
+	 * Returns the Vector API kernel if it is available and the scalar kernel
+	 * otherwise.
+	 */
+	static NetworkKernel newInstance() {
+		NetworkKernel kernel = newVectorKernel();
+		return kernel != null ? kernel : new ScalarNetworkKernel();
+	}
+
+	/**
+	 * Returns the Vector API kernel.
+	 *
+	 * @return the kernel or null if the incubator module or the vector source
+	 * set is missing.
+	 */
+	static NetworkKernel newVectorKernel() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return null;
+		}
+
+		try {
+			return (NetworkKernel) Class.forName("com.fluxchess.pulse.java.VectorNetworkKernel")
+				.getDeclaredConstructor()
+				.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
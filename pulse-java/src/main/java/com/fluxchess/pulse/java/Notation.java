@@ -11,10 +11,10 @@ import com.fluxchess.jcpi.models.GenericCastling;
 import com.fluxchess.jcpi.models.GenericChessman;
 import com.fluxchess.jcpi.models.GenericColor;
 import com.fluxchess.jcpi.models.GenericFile;
+import com.fluxchess.jcpi.models.GenericMove;
 import com.fluxchess.jcpi.models.GenericPiece;
 import com.fluxchess.jcpi.models.GenericPosition;
 import com.fluxchess.jcpi.models.GenericRank;
-import com.fluxchess.jcpi.models.IllegalNotationException;
 import com.fluxchess.pulse.java.model.Castling;
 import com.fluxchess.pulse.java.model.CastlingType;
 import com.fluxchess.pulse.java.model.Color;
@@ -31,6 +31,7 @@ import static com.fluxchess.pulse.java.model.Castling.WHITE_QUEENSIDE;
 import static com.fluxchess.pulse.java.model.Color.BLACK;
 import static com.fluxchess.pulse.java.model.Color.NOCOLOR;
 import static com.fluxchess.pulse.java.model.Color.WHITE;
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
 import static com.fluxchess.pulse.java.model.Rank.NORANK;
 import static com.fluxchess.pulse.java.model.Rank.r1;
 import static com.fluxchess.pulse.java.model.Rank.r2;
@@ -41,6 +42,12 @@ import static com.fluxchess.pulse.java.model.Rank.r6;
 import static com.fluxchess.pulse.java.model.Rank.r7;
 import static com.fluxchess.pulse.java.model.Rank.r8;
 import static com.fluxchess.pulse.java.model.Square.NOSQUARE;
+import static com.fluxchess.pulse.java.model.Square.a1;
+import static com.fluxchess.pulse.java.model.Square.a8;
+import static com.fluxchess.pulse.java.model.Square.e1;
+import static com.fluxchess.pulse.java.model.Square.e8;
+import static com.fluxchess.pulse.java.model.Square.h1;
+import static com.fluxchess.pulse.java.model.Square.h8;
 
 final class Notation {
 
@@ -49,11 +56,248 @@ final class Notation {
 	private Notation() {
 	}
 
+	/**
+	 * Parses the FEN directly into a new Position without going through a
+	 * GenericBoard. The half move clock and the full move number may be
+	 * omitted.
+	 *
+	 * @param fen the FEN.
+	 * @return the position.
+	 * @throws IllegalArgumentException if the FEN is not valid.
+	 */
 	static Position toPosition(String fen) {
-		try {
-			return toPosition(new GenericBoard(fen));
-		} catch (IllegalNotationException e) {
-			throw new IllegalArgumentException(e);
+		Position newPosition = new Position();
+		int length = fen.length();
+		int index = 0;
+
+		// Initialize board, starting at a8
+		int file = File.a;
+		int rank = r8;
+		for (; index < length && fen.charAt(index) != ' '; index++) {
+			char character = fen.charAt(index);
+			if (character == '/') {
+				if (file != File.NOFILE || rank == r1) {
+					throw new IllegalArgumentException(fen);
+				}
+				file = File.a;
+				rank--;
+			} else if (character >= '1' && character <= '8') {
+				file += character - '0';
+			} else if (file < File.NOFILE) {
+				newPosition.put(toPiece(character), Square.valueOf(file, rank));
+				file++;
+			} else {
+				throw new IllegalArgumentException(fen);
+			}
+
+			if (file > File.NOFILE) {
+				throw new IllegalArgumentException(fen);
+			}
+		}
+		if (file != File.NOFILE || rank != r1
+			|| Bitboard.size(newPosition.pieces[WHITE][PieceType.KING]) != 1
+			|| Bitboard.size(newPosition.pieces[BLACK][PieceType.KING]) != 1) {
+			throw new IllegalArgumentException(fen);
+		}
+
+		// Initialize active color
+		index = skipSpace(fen, index);
+		switch (fen.charAt(index++)) {
+			case 'w':
+				newPosition.setActiveColor(WHITE);
+				break;
+			case 'b':
+				newPosition.setActiveColor(BLACK);
+				break;
+			default:
+				throw new IllegalArgumentException(fen);
+		}
+
+		// Initialize castling. We ignore castling rights without the king and
+		// the rook on their squares.
+		index = skipSpace(fen, index);
+		if (fen.charAt(index) == '-') {
+			index++;
+		} else {
+			for (; index < length && fen.charAt(index) != ' '; index++) {
+				switch (fen.charAt(index)) {
+					case 'K':
+						setCastlingRight(newPosition, WHITE_KINGSIDE, Piece.WHITE_KING, e1, Piece.WHITE_ROOK, h1);
+						break;
+					case 'Q':
+						setCastlingRight(newPosition, WHITE_QUEENSIDE, Piece.WHITE_KING, e1, Piece.WHITE_ROOK, a1);
+						break;
+					case 'k':
+						setCastlingRight(newPosition, BLACK_KINGSIDE, Piece.BLACK_KING, e8, Piece.BLACK_ROOK, h8);
+						break;
+					case 'q':
+						setCastlingRight(newPosition, BLACK_QUEENSIDE, Piece.BLACK_KING, e8, Piece.BLACK_ROOK, a8);
+						break;
+					default:
+						throw new IllegalArgumentException(fen);
+				}
+			}
+		}
+
+		// Initialize en passant
+		index = skipSpace(fen, index);
+		if (fen.charAt(index) == '-') {
+			index++;
+		} else {
+			int enPassantSquare = toSquare(fen, index);
+			if (Square.getRank(enPassantSquare) != (newPosition.activeColor == WHITE ? r6 : r3)) {
+				throw new IllegalArgumentException(fen);
+			}
+			newPosition.setEnPassantSquare(enPassantSquare);
+			index += 2;
+		}
+
+		// Initialize half move clock
+		int halfmoveClock = 0;
+		if (index < length) {
+			index = skipSpace(fen, index);
+			int end = fen.indexOf(' ', index);
+			end = end < 0 ? length : end;
+			halfmoveClock = Integer.parseInt(fen, index, end, 10);
+			index = end;
+		}
+		newPosition.setHalfmoveClock(halfmoveClock);
+
+		// Initialize the full move number
+		int fullmoveNumber = 1;
+		if (index < length) {
+			index = skipSpace(fen, index);
+			fullmoveNumber = Integer.parseInt(fen, index, length, 10);
+		}
+		newPosition.setFullmoveNumber(fullmoveNumber);
+
+		return newPosition;
+	}
+
+	/**
+	 * Skips the space between two FEN fields.
+	 *
+	 * @return the index of the next field.
+	 */
+	private static int skipSpace(String fen, int index) {
+		if (index + 1 >= fen.length() || fen.charAt(index) != ' ') {
+			throw new IllegalArgumentException(fen);
+		}
+
+		return index + 1;
+	}
+
+	private static void setCastlingRight(
+		Position position, int castling, int king, int kingSquare, int rook, int rookSquare) {
+		if (position.board[kingSquare] == king && position.board[rookSquare] == rook) {
+			position.setCastlingRight(castling);
+		}
+	}
+
+	/**
+	 * Parses a move in coordinate notation like e2e4 or e7e8q and returns the
+	 * matching legal move of the position.
+	 *
+	 * @param position      the position.
+	 * @param notation      the move in coordinate notation.
+	 * @param moveGenerator the move generator to find the legal move.
+	 * @return the move.
+	 * @throws IllegalArgumentException if the notation is not valid or the move
+	 *                                  is not legal.
+	 */
+	static int toMove(Position position, String notation, MoveGenerator moveGenerator) {
+		int length = notation.length();
+		if (length != 4 && length != 5) {
+			throw new IllegalArgumentException(notation);
+		}
+
+		int originSquare = toSquare(notation, 0);
+		int targetSquare = toSquare(notation, 2);
+		int promotion = length == 5 ? toPieceType(notation.charAt(4)) : PieceType.NOPIECETYPE;
+
+		int move = moveGenerator.getLegalMove(position, originSquare, targetSquare, promotion);
+		if (move == NOMOVE) {
+			throw new IllegalArgumentException(notation);
+		}
+
+		return move;
+	}
+
+	/**
+	 * Returns the matching legal move of the position. We map the squares and
+	 * the promotion directly, so we don't have to format the move first.
+	 *
+	 * @throws IllegalArgumentException if the move is not legal.
+	 */
+	static int toMove(Position position, GenericMove genericMove, MoveGenerator moveGenerator) {
+		int promotion = genericMove.promotion != null ? toPieceType(genericMove.promotion) : PieceType.NOPIECETYPE;
+
+		int move = moveGenerator.getLegalMove(
+			position, toSquare(genericMove.from), toSquare(genericMove.to), promotion);
+		if (move == NOMOVE) {
+			throw new IllegalArgumentException(genericMove.toString());
+		}
+
+		return move;
+	}
+
+	private static int toSquare(String notation, int index) {
+		if (index + 1 >= notation.length()) {
+			throw new IllegalArgumentException(notation);
+		}
+
+		int file = notation.charAt(index) - 'a';
+		int rank = notation.charAt(index + 1) - '1';
+		if (file < File.a || file > File.h || rank < r1 || rank > r8) {
+			throw new IllegalArgumentException(notation);
+		}
+
+		return Square.valueOf(file, rank);
+	}
+
+	private static int toPiece(char character) {
+		switch (character) {
+			case 'P':
+				return Piece.WHITE_PAWN;
+			case 'N':
+				return Piece.WHITE_KNIGHT;
+			case 'B':
+				return Piece.WHITE_BISHOP;
+			case 'R':
+				return Piece.WHITE_ROOK;
+			case 'Q':
+				return Piece.WHITE_QUEEN;
+			case 'K':
+				return Piece.WHITE_KING;
+			case 'p':
+				return Piece.BLACK_PAWN;
+			case 'n':
+				return Piece.BLACK_KNIGHT;
+			case 'b':
+				return Piece.BLACK_BISHOP;
+			case 'r':
+				return Piece.BLACK_ROOK;
+			case 'q':
+				return Piece.BLACK_QUEEN;
+			case 'k':
+				return Piece.BLACK_KING;
+			default:
+				throw new IllegalArgumentException(String.valueOf(character));
+		}
+	}
+
+	private static int toPieceType(char character) {
+		switch (character) {
+			case 'n':
+				return PieceType.KNIGHT;
+			case 'b':
+				return PieceType.BISHOP;
+			case 'r':
+				return PieceType.ROOK;
+			case 'q':
+				return PieceType.QUEEN;
+			default:
+				throw new IllegalArgumentException(String.valueOf(character));
 		}
 	}
 
@@ -198,6 +442,25 @@ final class Notation {
 		}
 	}
 
+	static int toPieceType(GenericChessman genericChessman) {
+		switch (genericChessman) {
+			case PAWN:
+				return PieceType.PAWN;
+			case KNIGHT:
+				return PieceType.KNIGHT;
+			case BISHOP:
+				return PieceType.BISHOP;
+			case ROOK:
+				return PieceType.ROOK;
+			case QUEEN:
+				return PieceType.QUEEN;
+			case KING:
+				return PieceType.KING;
+			default:
+				throw new IllegalArgumentException();
+		}
+	}
+
 	static int toPiece(GenericPiece genericPiece) {
 		switch (genericPiece) {
 			case WHITEPAWN:
@@ -6,7 +6,14 @@
  */
 package com.fluxchess.pulse.java;
 
-import static com.fluxchess.pulse.java.model.Color.opposite;
+import com.fluxchess.pulse.java.model.Depth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.lang.Runtime.getRuntime;
 import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -15,22 +22,40 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 public final class Perft {
 
-	private static final int MAX_DEPTH = 6;
+	public static final int DEFAULT_DEPTH = 6;
+	public static final int MAX_DEPTH = Depth.MAX_DEPTH;
+	public static final int DEFAULT_THREADS = getRuntime().availableProcessors();
+	public static final int DEFAULT_HASH_SIZE = 0;
 
-	private final MoveGenerator[] moveGenerators = new MoveGenerator[MAX_DEPTH];
+	// We split the root moves and the second ply moves into tasks
+	private static final int SPLIT_PLY = 2;
 
 	public void run() {
-		Position position = Notation.toPosition(Notation.STANDARDPOSITION);
-		int depth = MAX_DEPTH;
+		run(Notation.STANDARDPOSITION, DEFAULT_DEPTH, DEFAULT_THREADS, DEFAULT_HASH_SIZE);
+	}
 
-		for (int i = 0; i < MAX_DEPTH; i++) {
-			moveGenerators[i] = new MoveGenerator();
+	/**
+	 * Runs perft and prints the result.
+	 *
+	 * @param fen      the FEN of the position.
+	 * @param depth    the depth.
+	 * @param threads  the number of threads.
+	 * @param hashSize the size of the perft hash table in megabytes or 0 to
+	 *                 disable it.
+	 */
+	public void run(String fen, int depth, int threads, int hashSize) {
+		if (depth < 1 || depth > MAX_DEPTH || threads < 1) {
+			throw new IllegalArgumentException();
 		}
 
-		System.out.format("Testing %s at depth %d%n", Notation.fromPosition(position), depth);
+		Position position = Notation.toPosition(fen);
+		PerftTable table = hashSize > 0 ? new PerftTable(hashSize) : null;
+
+		System.out.format("Testing %s at depth %d with %d threads and %d MB hash%n",
+			Notation.fromPosition(position), depth, threads, hashSize);
 
 		long startTime = currentTimeMillis();
-		long result = miniMax(depth, position, 0);
+		long result = miniMax(position, depth, threads, table);
 		long endTime = currentTimeMillis();
 
 		long duration = endTime - startTime;
@@ -44,29 +69,122 @@ public final class Perft {
 			duration - SECONDS.toMillis(MILLISECONDS.toSeconds(duration))
 		);
 
-		System.out.format("n/ms: %d%n", result / duration);
+		System.out.format("n/ms: %d%n", result / Math.max(duration, 1));
+	}
+
+	/**
+	 * Counts the leaf nodes of the position at the given depth. With more than
+	 * one thread, we split the first plies into fork-join tasks. Every task
+	 * works on its own copy of the position.
+	 *
+	 * @param position the Position. It is not modified.
+	 * @param depth    the depth.
+	 * @param threads  the number of threads.
+	 * @param table    the shared perft hash table or null.
+	 * @return the number of leaf nodes.
+	 */
+	static long miniMax(Position position, int depth, int threads, PerftTable table) {
+		if (threads == 1) {
+			return miniMax(depth, new Position(position), 0, newMoveGenerators(depth), table);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new PerftTask(new Position(position), depth, 0, table));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static MoveGenerator[] newMoveGenerators(int depth) {
+		MoveGenerator[] moveGenerators = new MoveGenerator[Math.max(depth, 1)];
+		for (int i = 0; i < moveGenerators.length; i++) {
+			moveGenerators[i] = new MoveGenerator();
+		}
+
+		return moveGenerators;
 	}
 
-	private long miniMax(int depth, Position position, int ply) {
+	private static long miniMax(int depth, Position position, int ply, MoveGenerator[] moveGenerators, PerftTable table) {
 		if (depth == 0) {
 			return 1;
 		}
 
-		int totalNodes = 0;
+		// Subtrees of depth 1 are cheaper to count than to look up
+		boolean useTable = table != null && depth > 1;
+		if (useTable) {
+			long nodes = table.probe(position.zobristKey, depth);
+			if (nodes != PerftTable.NOENTRY) {
+				return nodes;
+			}
+		}
 
 		boolean isCheck = position.isCheck();
 		MoveGenerator moveGenerator = moveGenerators[ply];
-		MoveList<MoveList.MoveEntry> moves = moveGenerator.getMoves(position, depth, isCheck);
+		MoveList moves = moveGenerator.getLegalMoves(position, isCheck);
+
+		// Count the leaf nodes in bulk without making the moves
+		if (depth == 1) {
+			return moves.size;
+		}
+
+		long totalNodes = 0;
 		for (int i = 0; i < moves.size; i++) {
-			int move = moves.entries[i].move;
+			int move = moves.moves[i];
 
 			position.makeMove(move);
-			if (!position.isCheck(opposite(position.activeColor))) {
-				totalNodes += miniMax(depth - 1, position, ply + 1);
-			}
+			totalNodes += miniMax(depth - 1, position, ply + 1, moveGenerators, table);
 			position.undoMove(move);
 		}
 
+		if (useTable) {
+			table.put(position.zobristKey, depth, totalNodes);
+		}
+
 		return totalNodes;
 	}
+
+	private static final class PerftTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Position position;
+		private final int depth;
+		private final int ply;
+		private final PerftTable table;
+
+		private PerftTask(Position position, int depth, int ply, PerftTable table) {
+			this.position = position;
+			this.depth = depth;
+			this.ply = ply;
+			this.table = table;
+		}
+
+		@Override
+		protected Long compute() {
+			if (ply >= SPLIT_PLY || depth <= 1) {
+				// Count the remaining plies in this thread
+				return miniMax(depth, position, 0, newMoveGenerators(depth), table);
+			}
+
+			List<PerftTask> tasks = new ArrayList<>();
+
+			boolean isCheck = position.isCheck();
+			MoveList moves = new MoveGenerator().getLegalMoves(position, isCheck);
+			for (int i = 0; i < moves.size; i++) {
+				int move = moves.moves[i];
+
+				position.makeMove(move);
+				tasks.add(new PerftTask(new Position(position), depth - 1, ply + 1, table));
+				position.undoMove(move);
+			}
+
+			long totalNodes = 0;
+			for (PerftTask task : invokeAll(tasks)) {
+				totalNodes += task.join();
+			}
+
+			return totalNodes;
+		}
+	}
 }
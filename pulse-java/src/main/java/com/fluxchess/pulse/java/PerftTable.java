@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+/**
+ * This class stores the node counts of perft subtrees keyed by the zobrist
+ * key of a position and the remaining depth. It uses the same lock-free
+ * layout as the TranspositionTable, so all perft tasks can share one table.
+ * Each bucket holds a depth-preferred slot and an always-replace slot. The
+ * data is represented by the following bits.
+ * <ul>
+ * <li><code> 0 - 55</code>: nodes</li>
+ * <li><code>56 - 63</code>: depth</li>
+ * </ul>
+ */
+final class PerftTable {
+
+	static final int MIN_SIZE = 1;
+	static final int MAX_SIZE = 4096;
+
+	// A probe returns NOENTRY if nothing was found
+	static final long NOENTRY = -1;
+
+	private static final int SLOT_SIZE = 2;
+	private static final int BUCKET_SIZE = 2 * SLOT_SIZE;
+
+	// These are our bit masks
+	private static final int NODES_SHIFT = 0;
+	private static final long NODES_MASK = 0xFFFFFFFFFFFFFFL << NODES_SHIFT;
+	private static final int DEPTH_SHIFT = 56;
+	private static final long DEPTH_MASK = 0xFFL << DEPTH_SHIFT;
+
+	private final long[] entries;
+	private final int bucketMask;
+
+	/**
+	 * Creates a table with the largest power of two number of buckets which
+	 * fits into the given megabytes.
+	 *
+	 * @param megabytes the size in megabytes.
+	 */
+	PerftTable(int megabytes) {
+		if (megabytes < MIN_SIZE || megabytes > MAX_SIZE) {
+			throw new IllegalArgumentException();
+		}
+
+		long buckets = ((long) megabytes * 1024 * 1024) / (Long.BYTES * BUCKET_SIZE);
+		int size = Long.numberOfTrailingZeros(Long.highestOneBit(buckets));
+
+		entries = new long[(1 << size) * BUCKET_SIZE];
+		bucketMask = (1 << size) - 1;
+	}
+
+	/**
+	 * Returns the node count of the position at the depth.
+	 *
+	 * @param zobristKey the zobrist key of the position.
+	 * @param depth      the remaining depth.
+	 * @return the node count or NOENTRY.
+	 */
+	long probe(long zobristKey, int depth) {
+		int index = getIndex(zobristKey);
+
+		for (int i = index; i < index + BUCKET_SIZE; i += SLOT_SIZE) {
+			long data = entries[i + 1];
+			if ((entries[i] ^ data) == zobristKey && getDepth(data) == depth) {
+				return getNodes(data);
+			}
+		}
+
+		return NOENTRY;
+	}
+
+	void put(long zobristKey, int depth, long nodes) {
+		int index = getIndex(zobristKey);
+
+		// Use the depth-preferred slot if we have an equal or better depth.
+		// Otherwise use the always-replace slot.
+		if (depth < getDepth(entries[index + 1])) {
+			index += SLOT_SIZE;
+		}
+
+		long data = ((nodes << NODES_SHIFT) & NODES_MASK) | (((long) depth << DEPTH_SHIFT) & DEPTH_MASK);
+		entries[index] = zobristKey ^ data;
+		entries[index + 1] = data;
+	}
+
+	private int getIndex(long zobristKey) {
+		return ((int) zobristKey & bucketMask) * BUCKET_SIZE;
+	}
+
+	private static long getNodes(long data) {
+		return (data & NODES_MASK) >>> NODES_SHIFT;
+	}
+
+	private static int getDepth(long data) {
+		return (int) ((data & DEPTH_MASK) >>> DEPTH_SHIFT);
+	}
+}
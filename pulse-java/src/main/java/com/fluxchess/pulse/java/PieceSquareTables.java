@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.PieceType;
+import com.fluxchess.pulse.java.model.Square;
+
+import static com.fluxchess.pulse.java.model.Color.WHITE;
+
+/**
+ * This class holds the piece-square tables for the midgame and the endgame,
+ * and the phase weights of the piece types. We pack both values of a square
+ * into one Score. Position sums them up incrementally in put() and remove(),
+ * so the evaluation only has to interpolate the sum. The tables below are
+ * written from the view of white with rank 8 at the top. We mirror them for
+ * black.
+ */
+final class PieceSquareTables {
+
+	// The weights of the piece types add up to Score.MAX_PHASE in the
+	// standard position
+	static final int[] phaseWeights = new int[PieceType.values.length];
+
+	static final int[][] scores = new int[Piece.values.length][Square.VALUES_LENGTH];
+
+	private static final int[] pawnMidgame = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		50, 50, 50, 50, 50, 50, 50, 50,
+		10, 10, 20, 30, 30, 20, 10, 10,
+		5, 5, 10, 25, 25, 10, 5, 5,
+		0, 0, 0, 20, 20, 0, 0, 0,
+		5, -5, -10, 0, 0, -10, -5, 5,
+		5, 10, 10, -20, -20, 10, 10, 5,
+		0, 0, 0, 0, 0, 0, 0, 0
+	};
+
+	private static final int[] pawnEndgame = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		80, 80, 80, 80, 80, 80, 80, 80,
+		50, 50, 50, 50, 50, 50, 50, 50,
+		30, 30, 30, 30, 30, 30, 30, 30,
+		15, 15, 15, 15, 15, 15, 15, 15,
+		5, 5, 5, 5, 5, 5, 5, 5,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0
+	};
+
+	private static final int[] knight = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20, 0, 0, 0, 0, -20, -40,
+		-30, 0, 10, 15, 15, 10, 0, -30,
+		-30, 5, 15, 20, 20, 15, 5, -30,
+		-30, 0, 15, 20, 20, 15, 0, -30,
+		-30, 5, 10, 15, 15, 10, 5, -30,
+		-40, -20, 0, 5, 5, 0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50
+	};
+
+	private static final int[] bishop = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10, 0, 0, 0, 0, 0, 0, -10,
+		-10, 0, 5, 10, 10, 5, 0, -10,
+		-10, 5, 5, 10, 10, 5, 5, -10,
+		-10, 0, 10, 10, 10, 10, 0, -10,
+		-10, 10, 10, 10, 10, 10, 10, -10,
+		-10, 5, 0, 0, 0, 0, 5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20
+	};
+
+	private static final int[] rookMidgame = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		5, 10, 10, 10, 10, 10, 10, 5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		0, 0, 0, 5, 5, 0, 0, 0
+	};
+
+	private static final int[] rookEndgame = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		10, 10, 10, 10, 10, 10, 10, 10,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, 0
+	};
+
+	private static final int[] queen = {
+		-20, -10, -10, -5, -5, -10, -10, -20,
+		-10, 0, 0, 0, 0, 0, 0, -10,
+		-10, 0, 5, 5, 5, 5, 0, -10,
+		-5, 0, 5, 5, 5, 5, 0, -5,
+		0, 0, 5, 5, 5, 5, 0, -5,
+		-10, 5, 5, 5, 5, 5, 0, -10,
+		-10, 0, 5, 0, 0, 0, 0, -10,
+		-20, -10, -10, -5, -5, -10, -10, -20
+	};
+
+	// The king hides behind its pawns in the midgame and becomes active in
+	// the endgame
+	private static final int[] kingMidgame = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		20, 20, 0, 0, 0, 0, 20, 20,
+		20, 30, 10, 0, 0, 10, 30, 20
+	};
+
+	private static final int[] kingEndgame = {
+		-50, -40, -30, -20, -20, -30, -40, -50,
+		-30, -20, -10, 0, 0, -10, -20, -30,
+		-30, -10, 20, 30, 30, 20, -10, -30,
+		-30, -10, 30, 40, 40, 30, -10, -30,
+		-30, -10, 30, 40, 40, 30, -10, -30,
+		-30, -10, 20, 30, 30, 20, -10, -30,
+		-30, -30, 0, 0, 0, 0, -30, -30,
+		-50, -30, -30, -30, -30, -30, -30, -50
+	};
+
+	static {
+		phaseWeights[PieceType.KNIGHT] = 1;
+		phaseWeights[PieceType.BISHOP] = 1;
+		phaseWeights[PieceType.ROOK] = 2;
+		phaseWeights[PieceType.QUEEN] = 4;
+
+		// Minor pieces and the queen use the same table in both phases
+		setTables(PieceType.PAWN, pawnMidgame, pawnEndgame);
+		setTables(PieceType.KNIGHT, knight, knight);
+		setTables(PieceType.BISHOP, bishop, bishop);
+		setTables(PieceType.ROOK, rookMidgame, rookEndgame);
+		setTables(PieceType.QUEEN, queen, queen);
+		setTables(PieceType.KING, kingMidgame, kingEndgame);
+	}
+
+	private PieceSquareTables() {
+	}
+
+	private static void setTables(int piecetype, int[] midgameTable, int[] endgameTable) {
+		for (int piece : Piece.values) {
+			if (Piece.getType(piece) == piecetype) {
+				for (int square : Square.values) {
+					// Our tables start with rank 8, so we mirror the rank for white
+					int rank = Piece.getColor(piece) == WHITE ? 7 - Square.getRank(square) : Square.getRank(square);
+					int index = rank * 8 + Square.getFile(square);
+
+					scores[piece][square] = Score.valueOf(midgameTable[index], endgameTable[index]);
+				}
+			}
+		}
+	}
+}
@@ -33,7 +33,6 @@ import static com.fluxchess.pulse.java.model.Square.NOSQUARE;
 import static com.fluxchess.pulse.java.model.Square.S;
 import static com.fluxchess.pulse.java.model.Square.a1;
 import static com.fluxchess.pulse.java.model.Square.a8;
-import static com.fluxchess.pulse.java.model.Square.bishopDirections;
 import static com.fluxchess.pulse.java.model.Square.c1;
 import static com.fluxchess.pulse.java.model.Square.c8;
 import static com.fluxchess.pulse.java.model.Square.d1;
@@ -46,10 +45,6 @@ import static com.fluxchess.pulse.java.model.Square.g1;
 import static com.fluxchess.pulse.java.model.Square.g8;
 import static com.fluxchess.pulse.java.model.Square.h1;
 import static com.fluxchess.pulse.java.model.Square.h8;
-import static com.fluxchess.pulse.java.model.Square.kingDirections;
-import static com.fluxchess.pulse.java.model.Square.knightDirections;
-import static com.fluxchess.pulse.java.model.Square.pawnDirections;
-import static com.fluxchess.pulse.java.model.Square.rookDirections;
 import static java.lang.Math.max;
 
 final class Position {
@@ -60,8 +55,21 @@ final class Position {
 
 	final long[][] pieces = new long[Color.values.length][PieceType.values.length];
 
+	// The squares occupied by any piece of a color
+	final long[] occupancy = new long[Color.values.length];
+
 	final int[] material = new int[Color.values.length];
 
+	// The piece-square scores of a color and the game phase of the pieces on
+	// the board
+	final int[] scores = new int[Color.values.length];
+	int phase = 0;
+
+	// The accumulators of the network for both colors, if we evaluate with a
+	// network
+	Network network = null;
+	short[][] accumulators = null;
+
 	int castlingRights = NOCASTLING;
 	int enPassantSquare = NOSQUARE;
 	int activeColor = WHITE;
@@ -70,11 +78,19 @@ final class Position {
 
 	long zobristKey = 0;
 
+	// The zobrist key of the pawns only. The evaluation uses it to cache the
+	// pawn structure.
+	long pawnZobristKey = 0;
+
 	// We will save some position parameters in a State before making a move.
 	// Later we will restore them before undoing a move.
 	private final State[] states = new State[MAX_MOVES];
 	private int statesSize = 0;
 
+	// The gains of every capture in the static exchange evaluation. There are
+	// never more captures on a square than pieces on the board.
+	private final int[] seeGains = new int[32];
+
 	private static final class Zobrist {
 
 		private static final SecureRandom random = new SecureRandom();
@@ -96,10 +112,16 @@ final class Position {
 			castlingRights[WHITE_QUEENSIDE] = next();
 			castlingRights[BLACK_KINGSIDE] = next();
 			castlingRights[BLACK_QUEENSIDE] = next();
-			castlingRights[WHITE_KINGSIDE | WHITE_QUEENSIDE] =
-				castlingRights[WHITE_KINGSIDE] ^ castlingRights[WHITE_QUEENSIDE];
-			castlingRights[BLACK_KINGSIDE | BLACK_QUEENSIDE] =
-				castlingRights[BLACK_KINGSIDE] ^ castlingRights[BLACK_QUEENSIDE];
+
+			// Combine the keys for all other castling rights, so we can update the
+			// zobrist key with the difference of any two castling rights.
+			for (int i = 0; i < Castling.VALUES_LENGTH; i++) {
+				if (Integer.bitCount(i) > 1) {
+					for (int castling = i; castling != NOCASTLING; castling &= castling - 1) {
+						castlingRights[i] ^= castlingRights[Integer.lowestOneBit(castling)];
+					}
+				}
+			}
 
 			for (int i = 0; i < Square.VALUES_LENGTH; i++) {
 				enPassantSquare[i] = next();
@@ -139,6 +161,50 @@ final class Position {
 		}
 	}
 
+	/**
+	 * Creates a copy of the position including its move history. This allows
+	 * us to search the same position in several threads.
+	 *
+	 * @param position the Position to copy.
+	 */
+	Position(Position position) {
+		this();
+
+		System.arraycopy(position.board, 0, board, 0, board.length);
+		for (int color : Color.values) {
+			System.arraycopy(position.pieces[color], 0, pieces[color], 0, pieces[color].length);
+		}
+		System.arraycopy(position.occupancy, 0, occupancy, 0, occupancy.length);
+		System.arraycopy(position.material, 0, material, 0, material.length);
+		System.arraycopy(position.scores, 0, scores, 0, scores.length);
+		phase = position.phase;
+		if (position.network != null) {
+			network = position.network;
+			accumulators = network.newAccumulators();
+			for (int color : Color.values) {
+				System.arraycopy(position.accumulators[color], 0, accumulators[color], 0, accumulators[color].length);
+			}
+		}
+
+		castlingRights = position.castlingRights;
+		enPassantSquare = position.enPassantSquare;
+		activeColor = position.activeColor;
+		halfmoveClock = position.halfmoveClock;
+		halfmoveNumber = position.halfmoveNumber;
+
+		zobristKey = position.zobristKey;
+		pawnZobristKey = position.pawnZobristKey;
+
+		for (int i = 0; i < position.statesSize; i++) {
+			State entry = states[i];
+			entry.zobristKey = position.states[i].zobristKey;
+			entry.castlingRights = position.states[i].castlingRights;
+			entry.enPassantSquare = position.states[i].enPassantSquare;
+			entry.halfmoveClock = position.states[i].halfmoveClock;
+		}
+		statesSize = position.statesSize;
+	}
+
 	void setActiveColor(int activeColor) {
 		if (this.activeColor != activeColor) {
 			this.activeColor = activeColor;
@@ -199,6 +265,31 @@ final class Position {
 			&& (Bitboard.size(pieces[BLACK][PieceType.KNIGHT]) + Bitboard.size(pieces[BLACK][PieceType.BISHOP]) <= 1);
 	}
 
+	/**
+	 * Returns whether the color has any piece besides its pawns and its king.
+	 * Without them, zugzwang positions are too common for null moves.
+	 */
+	boolean hasNonPawnMaterial(int color) {
+		return (pieces[color][PieceType.KNIGHT] | pieces[color][PieceType.BISHOP]
+			| pieces[color][PieceType.ROOK] | pieces[color][PieceType.QUEEN]) != 0;
+	}
+
+	/**
+	 * Sets the network to evaluate the position with and computes its
+	 * accumulators. From now on put() and remove() update them incrementally.
+	 *
+	 * @param network the Network or null to evaluate without a network.
+	 */
+	void setNetwork(Network network) {
+		this.network = network;
+		if (network != null) {
+			accumulators = network.newAccumulators();
+			network.refresh(this, accumulators);
+		} else {
+			accumulators = null;
+		}
+	}
+
 	/**
 	 * Puts a piece at the square. We need to update our board and the appropriate
 	 * piece type list.
@@ -212,9 +303,18 @@ final class Position {
 
 		board[square] = piece;
 		pieces[color][piecetype] = Bitboard.add(square, pieces[color][piecetype]);
+		occupancy[color] = Bitboard.add(square, occupancy[color]);
 		material[color] += PieceType.getValue(piecetype);
+		scores[color] += PieceSquareTables.scores[piece][square];
+		phase += PieceSquareTables.phaseWeights[piecetype];
+		if (network != null) {
+			network.add(accumulators, piece, square);
+		}
 
 		zobristKey ^= Zobrist.board[piece][square];
+		if (piecetype == PieceType.PAWN) {
+			pawnZobristKey ^= Zobrist.board[piece][square];
+		}
 	}
 
 	/**
@@ -232,9 +332,18 @@ final class Position {
 
 		board[square] = Piece.NOPIECE;
 		pieces[color][piecetype] = Bitboard.remove(square, pieces[color][piecetype]);
+		occupancy[color] = Bitboard.remove(square, occupancy[color]);
 		material[color] -= PieceType.getValue(piecetype);
+		scores[color] -= PieceSquareTables.scores[piece][square];
+		phase -= PieceSquareTables.phaseWeights[piecetype];
+		if (network != null) {
+			network.remove(accumulators, piece, square);
+		}
 
 		zobristKey ^= Zobrist.board[piece][square];
+		if (piecetype == PieceType.PAWN) {
+			pawnZobristKey ^= Zobrist.board[piece][square];
+		}
 
 		return piece;
 	}
@@ -401,6 +510,54 @@ final class Position {
 		zobristKey = entry.zobristKey;
 	}
 
+	/**
+	 * Passes the move to the opposite color. We reset the halfmoveClock, so
+	 * isRepetition() does not look for repetitions across the null move.
+	 */
+	void makeNullMove() {
+		// Save state
+		State entry = states[statesSize];
+		entry.zobristKey = zobristKey;
+		entry.castlingRights = castlingRights;
+		entry.enPassantSquare = enPassantSquare;
+		entry.halfmoveClock = halfmoveClock;
+
+		statesSize++;
+
+		// Update enPassantSquare
+		if (enPassantSquare != NOSQUARE) {
+			zobristKey ^= Zobrist.enPassantSquare[enPassantSquare];
+			enPassantSquare = NOSQUARE;
+		}
+
+		// Update activeColor
+		activeColor = opposite(activeColor);
+		zobristKey ^= Zobrist.activeColor;
+
+		// Update halfmoveClock
+		halfmoveClock = 0;
+
+		// Update fullMoveNumber
+		halfmoveNumber++;
+	}
+
+	void undoNullMove() {
+		// Update fullMoveNumber
+		halfmoveNumber--;
+
+		// Update activeColor
+		activeColor = opposite(activeColor);
+
+		// Restore state
+		statesSize--;
+
+		State entry = states[statesSize];
+		halfmoveClock = entry.halfmoveClock;
+		enPassantSquare = entry.enPassantSquare;
+		castlingRights = entry.castlingRights;
+		zobristKey = entry.zobristKey;
+	}
+
 	private void clearCastling(int square) {
 		int newCastlingRights = castlingRights;
 
@@ -428,8 +585,8 @@ final class Position {
 		}
 
 		if (newCastlingRights != castlingRights) {
-			castlingRights = newCastlingRights;
 			zobristKey ^= Zobrist.castlingRights[newCastlingRights ^ castlingRights];
+			castlingRights = newCastlingRights;
 		}
 	}
 
@@ -444,85 +601,173 @@ final class Position {
 	}
 
 	/**
-	 * Returns whether the targetSquare is attacked by any piece from the
-	 * attackerColor. We will backtrack from the targetSquare to find the piece.
+	 * Returns the pieces of the opposite color which give check to the active
+	 * color.
 	 *
-	 * @param targetSquare  the target Square.
-	 * @param attackerColor the attacker Color.
-	 * @return whether the targetSquare is attacked.
+	 * @return the bitboard of the checking pieces.
 	 */
-	boolean isAttacked(int targetSquare, int attackerColor) {
-		// Pawn attacks
-		int pawnPiece = Piece.valueOf(attackerColor, PieceType.PAWN);
-		for (int i = 1; i < pawnDirections[attackerColor].length; i++) {
-			int attackerSquare = targetSquare - pawnDirections[attackerColor][i];
-			if (Square.isValid(attackerSquare)) {
-				int attackerPawn = board[attackerSquare];
-
-				if (attackerPawn == pawnPiece) {
-					return true;
-				}
-			}
-		}
-
-		return isAttacked(targetSquare,
-			Piece.valueOf(attackerColor, PieceType.KNIGHT),
-			knightDirections)
-
-			// The queen moves like a bishop, so check both piece types
-			|| isAttacked(targetSquare,
-			Piece.valueOf(attackerColor, PieceType.BISHOP),
-			Piece.valueOf(attackerColor, PieceType.QUEEN),
-			bishopDirections)
-
-			// The queen moves like a rook, so check both piece types
-			|| isAttacked(targetSquare,
-			Piece.valueOf(attackerColor, PieceType.ROOK),
-			Piece.valueOf(attackerColor, PieceType.QUEEN),
-			rookDirections)
-
-			|| isAttacked(targetSquare,
-			Piece.valueOf(attackerColor, PieceType.KING),
-			kingDirections);
+	long getCheckers() {
+		int kingSquare = Bitboard.next(pieces[activeColor][PieceType.KING]);
+		return getAttackers(kingSquare, opposite(activeColor), occupancy[WHITE] | occupancy[BLACK]);
 	}
 
 	/**
-	 * Returns whether the targetSquare is attacked by a non-sliding piece.
+	 * Returns the pieces of the active color which are pinned to their king. A
+	 * pinned piece may only move along the line between the king and the
+	 * pinning piece.
+	 *
+	 * @return the bitboard of the pinned pieces.
 	 */
-	private boolean isAttacked(int targetSquare, int attackerPiece, int[] directions) {
-		for (int direction : directions) {
-			int attackerSquare = targetSquare + direction;
-
-			if (Square.isValid(attackerSquare) && board[attackerSquare] == attackerPiece) {
-				return true;
+	long getPinned() {
+		int oppositeColor = opposite(activeColor);
+		long[] attackers = pieces[oppositeColor];
+		int kingSquare = Bitboard.next(pieces[activeColor][PieceType.KING]);
+		long occupied = occupancy[WHITE] | occupancy[BLACK];
+
+		// Look through our own pieces to find the sliding pieces which might pin
+		long snipers = (Attacks.bishopAttacks(kingSquare, occupancy[oppositeColor])
+			& (attackers[PieceType.BISHOP] | attackers[PieceType.QUEEN]))
+			| (Attacks.rookAttacks(kingSquare, occupancy[oppositeColor])
+			& (attackers[PieceType.ROOK] | attackers[PieceType.QUEEN]));
+
+		long pinned = 0;
+		for (long squares = snipers; squares != 0; squares = Bitboard.remainder(squares)) {
+			long blockers = Attacks.between[kingSquare][Bitboard.next(squares)] & occupied;
+			if (Bitboard.size(blockers) == 1) {
+				pinned |= blockers & occupancy[activeColor];
 			}
 		}
 
-		return false;
+		return pinned;
 	}
 
 	/**
-	 * Returns whether the targetSquare is attacked by a sliding piece.
+	 * Returns all pieces of the attackerColor which attack the targetSquare
+	 * with the given occupancy.
+	 *
+	 * @param targetSquare  the target Square.
+	 * @param attackerColor the attacker Color.
+	 * @param occupied      the occupied squares.
+	 * @return the bitboard of the attacking pieces.
 	 */
-	private boolean isAttacked(int targetSquare, int attackerPiece, int queenPiece, int[] directions) {
-		for (int direction : directions) {
-			int attackerSquare = targetSquare + direction;
+	long getAttackers(int targetSquare, int attackerColor, long occupied) {
+		long[] attackers = pieces[attackerColor];
+
+		return (Attacks.pawnAttacks[opposite(attackerColor)][targetSquare] & attackers[PieceType.PAWN])
+			| (Attacks.knightAttacks[targetSquare] & attackers[PieceType.KNIGHT])
+			| (Attacks.kingAttacks[targetSquare] & attackers[PieceType.KING])
+			| (Attacks.bishopAttacks(targetSquare, occupied) & (attackers[PieceType.BISHOP] | attackers[PieceType.QUEEN]))
+			| (Attacks.rookAttacks(targetSquare, occupied) & (attackers[PieceType.ROOK] | attackers[PieceType.QUEEN]));
+	}
 
-			while (Square.isValid(attackerSquare)) {
-				int piece = board[attackerSquare];
+	/**
+	 * Returns the static exchange evaluation of the capturing move. We capture
+	 * on the target square with the least valuable attacker of each side in
+	 * turn until one side runs out of attackers. Sliding pieces behind a
+	 * capturing piece join the exchange as soon as the piece leaves. Finally,
+	 * each side may stop capturing when it would lose material.
+	 *
+	 * @param move the capturing move.
+	 * @return the material we win or lose with the exchange.
+	 */
+	int see(int move) {
+		int originSquare = Move.getOriginSquare(move);
+		int targetSquare = Move.getTargetSquare(move);
+		long occupied = Bitboard.remove(originSquare, occupancy[WHITE] | occupancy[BLACK]);
+
+		// The first capture
+		seeGains[0] = PieceType.getValue(Piece.getType(Move.getTargetPiece(move)));
+		int pieceValue = PieceType.getValue(Piece.getType(Move.getOriginPiece(move)));
+		if (Move.getType(move) == PAWNPROMOTION) {
+			pieceValue = PieceType.getValue(Move.getPromotion(move));
+			seeGains[0] += pieceValue - PieceType.PAWN_VALUE;
+		} else if (Move.getType(move) == ENPASSANT) {
+			occupied = Bitboard.remove(targetSquare + (activeColor == WHITE ? S : N), occupied);
+		}
 
-				if (Piece.isValid(piece)) {
-					if (piece == attackerPiece || piece == queenPiece) {
-						return true;
-					}
+		long diagonalSliders = pieces[WHITE][PieceType.BISHOP] | pieces[BLACK][PieceType.BISHOP]
+			| pieces[WHITE][PieceType.QUEEN] | pieces[BLACK][PieceType.QUEEN];
+		long straightSliders = pieces[WHITE][PieceType.ROOK] | pieces[BLACK][PieceType.ROOK]
+			| pieces[WHITE][PieceType.QUEEN] | pieces[BLACK][PieceType.QUEEN];
+		long attackers = (getAttackers(targetSquare, WHITE, occupied) | getAttackers(targetSquare, BLACK, occupied))
+			& occupied;
+
+		int depth = 0;
+		int color = opposite(activeColor);
+		while (true) {
+			long colorAttackers = attackers & occupancy[color];
+			if (colorAttackers == 0) {
+				break;
+			}
 
-					break;
-				} else {
-					attackerSquare += direction;
-				}
+			// Find the least valuable attacker
+			int piecetype = PieceType.PAWN;
+			while ((colorAttackers & pieces[color][piecetype]) == 0) {
+				piecetype++;
+			}
+
+			// The king may only capture if the square is not defended anymore
+			if (piecetype == PieceType.KING && (attackers & occupancy[opposite(color)]) != 0) {
+				break;
 			}
+
+			depth++;
+			seeGains[depth] = pieceValue - seeGains[depth - 1];
+			pieceValue = PieceType.getValue(piecetype);
+
+			// Remove the attacker and add the sliding pieces behind it
+			occupied = Bitboard.remove(Bitboard.next(colorAttackers & pieces[color][piecetype]), occupied);
+			attackers |= (Attacks.bishopAttacks(targetSquare, occupied) & diagonalSliders)
+				| (Attacks.rookAttacks(targetSquare, occupied) & straightSliders);
+			attackers &= occupied;
+
+			color = opposite(color);
 		}
 
-		return false;
+		// Let each side stop the exchange if capturing would lose material
+		while (depth > 0) {
+			seeGains[depth - 1] = -max(-seeGains[depth - 1], seeGains[depth]);
+			depth--;
+		}
+
+		return seeGains[0];
+	}
+
+	/**
+	 * Returns whether the targetSquare is attacked by any piece from the
+	 * attackerColor. We will look up the attacks from the targetSquare and
+	 * intersect them with the pieces of the attackerColor.
+	 *
+	 * @param targetSquare  the target Square.
+	 * @param attackerColor the attacker Color.
+	 * @return whether the targetSquare is attacked.
+	 */
+	boolean isAttacked(int targetSquare, int attackerColor) {
+		return isAttacked(targetSquare, attackerColor, occupancy[WHITE] | occupancy[BLACK]);
+	}
+
+	/**
+	 * Returns whether the targetSquare is attacked by any piece from the
+	 * attackerColor with the given occupancy. This allows us to test squares
+	 * as if some pieces had already moved.
+	 *
+	 * @param targetSquare  the target Square.
+	 * @param attackerColor the attacker Color.
+	 * @param occupied      the occupied squares.
+	 * @return whether the targetSquare is attacked.
+	 */
+	boolean isAttacked(int targetSquare, int attackerColor, long occupied) {
+		long[] attackers = pieces[attackerColor];
+
+		// A pawn attacks us from where our own pawn would attack
+		return (Attacks.pawnAttacks[opposite(attackerColor)][targetSquare] & attackers[PieceType.PAWN]) != 0
+			|| (Attacks.knightAttacks[targetSquare] & attackers[PieceType.KNIGHT]) != 0
+			|| (Attacks.kingAttacks[targetSquare] & attackers[PieceType.KING]) != 0
+
+			// The queen moves like a bishop and a rook, so check both piece types
+			|| (Attacks.bishopAttacks(targetSquare, occupied)
+			& (attackers[PieceType.BISHOP] | attackers[PieceType.QUEEN])) != 0
+			|| (Attacks.rookAttacks(targetSquare, occupied)
+			& (attackers[PieceType.ROOK] | attackers[PieceType.QUEEN])) != 0;
 	}
 }
@@ -23,12 +23,18 @@ import com.fluxchess.jcpi.commands.ProtocolReadyAnswerCommand;
 import com.fluxchess.jcpi.models.GenericBoard;
 import com.fluxchess.jcpi.models.GenericColor;
 import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.options.Options;
+import com.fluxchess.jcpi.options.SpinnerOption;
+import com.fluxchess.jcpi.options.TextboxOption;
 import com.fluxchess.jcpi.protocols.IProtocolHandler;
 import com.fluxchess.pulse.java.model.Move;
 import com.fluxchess.pulse.java.model.Value;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +46,8 @@ import static com.fluxchess.pulse.java.model.MoveType.PAWNDOUBLE;
 import static com.fluxchess.pulse.java.model.MoveType.PAWNPROMOTION;
 import static java.lang.Integer.signum;
 import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.System.currentTimeMillis;
 
 /**
@@ -49,13 +57,44 @@ import static java.lang.System.currentTimeMillis;
  */
 public final class Pulse extends AbstractEngine implements Protocol {
 
+	private static final SpinnerOption hashOption = Options.newHashOption(
+		TranspositionTable.DEFAULT_SIZE, TranspositionTable.MIN_SIZE, TranspositionTable.MAX_SIZE
+	);
+	private static final SpinnerOption evaluationHashOption = new SpinnerOption(
+		"EvalHash", EvaluationTable.DEFAULT_SIZE, EvaluationTable.MIN_SIZE, EvaluationTable.MAX_SIZE
+	);
+	private static final SpinnerOption threadsOption = new SpinnerOption(
+		"Threads", Search.DEFAULT_THREADS, 1, Search.MAX_THREADS
+	);
+
+	// The weights file of the network. We use our hand-written evaluation as
+	// long as it is empty.
+	private static final String NO_EVAL_FILE = "<empty>";
+	private static final TextboxOption evalFileOption = new TextboxOption("EvalFile", NO_EVAL_FILE);
+
+	// Usually the GUI adds our last move and the reply of the opponent
+	private static final int MAX_NEW_MOVES = 2;
+
 	private boolean debug = false;
 
+	// If we own the output stream, we format the search output ourselves
+	// and let a writer thread send it. Otherwise this is null.
+	private final UciWriter writer;
+
 	private final Search search = new Search(this);
 	private long startTime = 0;
 	private long statusStartTime = 0;
 
-	private Position currentPosition = Notation.toPosition(new GenericBoard(GenericBoard.STANDARDSETUP));
+	private Position currentPosition = Notation.toPosition(Notation.STANDARDPOSITION);
+
+	// We use our own move generator to find the moves of the analyze command
+	private final MoveGenerator moveGenerator = new MoveGenerator();
+
+	// The board and the moves of the current position. If an analyze command
+	// only adds up to MAX_NEW_MOVES moves, we make them on the current position
+	// instead of setting up the whole game again.
+	private GenericBoard currentBoard = null;
+	private final List<GenericMove> currentMoves = new ArrayList<>();
 
 	// AbstractEngine provides three constructors to help us connecting to a
 	// command channel.
@@ -69,6 +108,8 @@ public final class Pulse extends AbstractEngine implements Protocol {
 	 */
 	public Pulse(BufferedReader input, PrintStream output) {
 		super(input, output);
+
+		writer = new UciWriter(output);
 	}
 
 	/**
@@ -79,6 +120,8 @@ public final class Pulse extends AbstractEngine implements Protocol {
 	 */
 	public Pulse(IProtocolHandler handler) {
 		super(handler);
+
+		writer = null;
 	}
 
 	@Override
@@ -86,6 +129,11 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		// We received a quit command. Stop calculating now and
 		// cleanup!
 		search.quit();
+
+		// Send the remaining output
+		if (writer != null) {
+			writer.close();
+		}
 	}
 
 	@Override
@@ -102,13 +150,51 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		ProtocolInitializeAnswerCommand answerCommand = new ProtocolInitializeAnswerCommand(
 			"Pulse Java 2.0.0", "Phokham Nonava"
 		);
+		answerCommand.addOption(hashOption);
+		answerCommand.addOption(evaluationHashOption);
+		answerCommand.addOption(threadsOption);
+		answerCommand.addOption(evalFileOption);
 
 		// Send the answer back.
+		flushOutput();
 		getProtocol().send(answerCommand);
 	}
 
 	@Override
 	public void receive(EngineSetOptionCommand command) {
+		search.stop();
+
+		try {
+			if (hashOption.name.equalsIgnoreCase(command.name)) {
+				search.setHashSize(toValue(hashOption, command.value));
+			} else if (evaluationHashOption.name.equalsIgnoreCase(command.name)) {
+				search.setEvaluationHashSize(toValue(evaluationHashOption, command.value));
+			} else if (threadsOption.name.equalsIgnoreCase(command.name)) {
+				search.setThreads(toValue(threadsOption, command.value));
+			} else if (evalFileOption.name.equalsIgnoreCase(command.name)) {
+				setEvalFile(command.value);
+			}
+		} catch (NumberFormatException e) {
+			sendInfo("Invalid value for option " + command.name + ": " + command.value);
+		}
+	}
+
+	private void setEvalFile(String value) {
+		if (value == null || value.isBlank() || NO_EVAL_FILE.equals(value)) {
+			search.setNetwork(null);
+			return;
+		}
+
+		try {
+			search.setNetwork(Network.load(Path.of(value)));
+		} catch (IOException | InvalidPathException e) {
+			search.setNetwork(null);
+			sendInfo("Could not load network " + value + ": " + e.getMessage());
+		}
+	}
+
+	private static int toValue(SpinnerOption option, String value) {
+		return max(option.minValue, min(Integer.parseInt(value), option.maxValue));
 	}
 
 	@Override
@@ -125,6 +211,7 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		} else {
 			informationCommand.setString("Turning off debugging mode");
 		}
+		flushOutput();
 		getProtocol().send(informationCommand);
 	}
 
@@ -134,7 +221,9 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		// can. However, because we launch the search in a separate thread, our main
 		// thread is able to handle the commands asynchronously to the search. If we
 		// don't answer the ready request in time, our engine will probably be
-		// killed by the GUI.
+		// killed by the GUI. We must not send it before the output of a
+		// stopped search though.
+		flushOutput();
 		getProtocol().send(new ProtocolReadyAnswerCommand(command.token));
 	}
 
@@ -145,7 +234,10 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		// We received a new game command.
 
 		// Initialize per-game settings here.
-		currentPosition = Notation.toPosition(new GenericBoard(GenericBoard.STANDARDSETUP));
+		search.newGame();
+		currentPosition = Notation.toPosition(Notation.STANDARDPOSITION);
+		currentBoard = null;
+		currentMoves.clear();
 	}
 
 	@Override
@@ -154,33 +246,36 @@ public final class Pulse extends AbstractEngine implements Protocol {
 
 		// We received an analyze command. Just setup the position.
 
-		// Create a new internal position from the GenericBoard.
-		currentPosition = Notation.toPosition(command.board);
-
-		MoveGenerator moveGenerator = new MoveGenerator();
-
-		// Make all moves
-		for (GenericMove genericMove : command.moves) {
-			// Verify moves
-			MoveList<MoveList.MoveEntry> moves = moveGenerator.getLegalMoves(currentPosition, 1, currentPosition.isCheck());
-			boolean found = false;
-			for (int i = 0; i < moves.size; i++) {
-				int move = moves.entries[i].move;
-				if (fromMove(move).equals(genericMove)) {
-					currentPosition.makeMove(move);
-					found = true;
-					break;
-				}
-			}
+		int newMoves = command.moves.size() - currentMoves.size();
+		if (newMoves < 1 || newMoves > MAX_NEW_MOVES
+			|| !command.board.equals(currentBoard)
+			|| !command.moves.subList(0, currentMoves.size()).equals(currentMoves)) {
+			// Create a new internal position from the GenericBoard.
+			currentPosition = Notation.toPosition(command.board);
+			currentBoard = command.board;
+			currentMoves.clear();
+		}
 
-			if (!found) {
-				throw new IllegalArgumentException();
-			}
+		// Make all new moves. Only legal moves are found. If a move is not
+		// legal, toMove() throws an IllegalArgumentException. We keep the moves
+		// we made before it and let the exception propagate.
+		for (int i = currentMoves.size(); i < command.moves.size(); i++) {
+			GenericMove genericMove = command.moves.get(i);
+			currentPosition.makeMove(Notation.toMove(currentPosition, genericMove, moveGenerator));
+			currentMoves.add(genericMove);
 		}
 
 		// Don't start searching though!
 	}
 
+	/**
+	 * Returns the position of the last analyze command. We make the new moves
+	 * on the same position as long as the command only adds a few moves.
+	 */
+	Position getCurrentPosition() {
+		return currentPosition;
+	}
+
 	@Override
 	public void receive(EngineStartCalculatingCommand command) {
 		search.stop();
@@ -250,6 +345,24 @@ public final class Pulse extends AbstractEngine implements Protocol {
 
 	@Override
 	public void sendBestMove(int bestMove, int ponderMove) {
+		if (writer != null) {
+			// The best move goes through the same queue as the info lines, so
+			// it is never sent before them.
+			writer.append("bestmove ");
+			if (bestMove != NOMOVE) {
+				writer.appendMove(bestMove);
+
+				if (ponderMove != NOMOVE) {
+					writer.append(" ponder ").appendMove(ponderMove);
+				}
+			} else {
+				writer.append("(none)");
+			}
+			writer.writeLine();
+
+			return;
+		}
+
 		GenericMove genericBestMove = null;
 		GenericMove genericPonderMove = null;
 		if (bestMove != NOMOVE) {
@@ -278,20 +391,35 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		long timeDelta = currentTimeMillis() - startTime;
 
 		if (force || timeDelta >= 1000) {
-			ProtocolInformationCommand command = new ProtocolInformationCommand();
+			long nps = timeDelta >= 1000 ? (totalNodes * 1000) / timeDelta : 0;
+
+			if (writer != null) {
+				writer.append("info depth ").append(currentDepth)
+					.append(" seldepth ").append(currentMaxDepth)
+					.append(" nodes ").append(totalNodes)
+					.append(" time ").append(timeDelta)
+					.append(" nps ").append(nps);
+				if (currentMove != NOMOVE) {
+					writer.append(" currmove ").appendMove(currentMove)
+						.append(" currmovenumber ").append(currentMoveNumber);
+				}
+				writer.writeStatusLine();
+			} else {
+				ProtocolInformationCommand command = new ProtocolInformationCommand();
+
+				command.setDepth(currentDepth);
+				command.setMaxDepth(currentMaxDepth);
+				command.setNodes(totalNodes);
+				command.setTime(timeDelta);
+				command.setNps(nps);
+				if (currentMove != NOMOVE) {
+					command.setCurrentMove(fromMove(currentMove));
+					command.setCurrentMoveNumber(currentMoveNumber);
+				}
 
-			command.setDepth(currentDepth);
-			command.setMaxDepth(currentMaxDepth);
-			command.setNodes(totalNodes);
-			command.setTime(timeDelta);
-			command.setNps(timeDelta >= 1000 ? (totalNodes * 1000) / timeDelta : 0);
-			if (currentMove != NOMOVE) {
-				command.setCurrentMove(fromMove(currentMove));
-				command.setCurrentMoveNumber(currentMoveNumber);
+				getProtocol().send(command);
 			}
 
-			getProtocol().send(command);
-
 			statusStartTime = currentTimeMillis();
 		}
 	}
@@ -299,28 +427,50 @@ public final class Pulse extends AbstractEngine implements Protocol {
 	@Override
 	public void sendMove(MoveList.RootEntry entry, int currentDepth, int currentMaxDepth, long totalNodes) {
 		long timeDelta = currentTimeMillis() - startTime;
+		long nps = timeDelta >= 1000 ? (totalNodes * 1000) / timeDelta : 0;
+
+		// Calculate mate distance
+		boolean mate = abs(entry.value) >= Value.CHECKMATE_THRESHOLD;
+		int mateDepth = Value.CHECKMATE - abs(entry.value);
+		int mateMoves = signum(entry.value) * (mateDepth + 1) / 2;
+
+		if (writer != null) {
+			writer.append("info depth ").append(currentDepth)
+				.append(" seldepth ").append(currentMaxDepth);
+			if (mate) {
+				writer.append(" score mate ").append(mateMoves);
+			} else {
+				writer.append(" score cp ").append(entry.value);
+			}
+			writer.append(" nodes ").append(totalNodes)
+				.append(" time ").append(timeDelta)
+				.append(" nps ").append(nps)
+				.append(" pv");
+			for (int i = 0; i < entry.pv.size; i++) {
+				writer.append(" ").appendMove(entry.pv.moves[i]);
+			}
+			writer.writeInfoLine();
+		} else {
+			ProtocolInformationCommand command = new ProtocolInformationCommand();
 
-		ProtocolInformationCommand command = new ProtocolInformationCommand();
+			command.setDepth(currentDepth);
+			command.setMaxDepth(currentMaxDepth);
+			command.setNodes(totalNodes);
+			command.setTime(timeDelta);
+			command.setNps(nps);
+			if (mate) {
+				command.setMate(mateMoves);
+			} else {
+				command.setCentipawns(entry.value);
+			}
+			List<GenericMove> moveList = new ArrayList<>();
+			for (int i = 0; i < entry.pv.size; i++) {
+				moveList.add(fromMove(entry.pv.moves[i]));
+			}
+			command.setMoveList(moveList);
 
-		command.setDepth(currentDepth);
-		command.setMaxDepth(currentMaxDepth);
-		command.setNodes(totalNodes);
-		command.setTime(timeDelta);
-		command.setNps(timeDelta >= 1000 ? (totalNodes * 1000) / timeDelta : 0);
-		if (abs(entry.value) >= Value.CHECKMATE_THRESHOLD) {
-			// Calculate mate distance
-			int mateDepth = Value.CHECKMATE - abs(entry.value);
-			command.setMate(signum(entry.value) * (mateDepth + 1) / 2);
-		} else {
-			command.setCentipawns(entry.value);
-		}
-		List<GenericMove> moveList = new ArrayList<>();
-		for (int i = 0; i < entry.pv.size; i++) {
-			moveList.add(fromMove(entry.pv.moves[i]));
+			getProtocol().send(command);
 		}
-		command.setMoveList(moveList);
-
-		getProtocol().send(command);
 
 		statusStartTime = currentTimeMillis();
 	}
@@ -329,11 +479,14 @@ public final class Pulse extends AbstractEngine implements Protocol {
 	public void sendInfo(String message) {
 		ProtocolInformationCommand command = new ProtocolInformationCommand();
 		command.setString(message);
+		flushOutput();
 		getProtocol().send(command);
 	}
 
 	protected Pulse() {
 		super();
+
+		writer = null;
 	}
 
 	@Override
@@ -341,10 +494,22 @@ public final class Pulse extends AbstractEngine implements Protocol {
 		if (debug) {
 			ProtocolInformationCommand command = new ProtocolInformationCommand();
 			command.setString(message);
+			flushOutput();
 			getProtocol().send(command);
 		}
 	}
 
+	/**
+	 * Waits until the writer thread has sent our queued output. We send
+	 * everything except the search output directly through the protocol, so
+	 * we must call this first to keep the lines in order.
+	 */
+	private void flushOutput() {
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
 	static GenericMove fromMove(int move) {
 		int type = Move.getType(move);
 		int originSquare = Move.getOriginSquare(move);
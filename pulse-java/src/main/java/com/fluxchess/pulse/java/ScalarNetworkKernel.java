@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+/**
+ * This kernel uses plain loops, which the JIT compiler may vectorize on its
+ * own. We fall back to it if the Vector API is not available.
+ */
+final class ScalarNetworkKernel implements NetworkKernel {
+
+	@Override
+	public void add(short[] accumulator, short[] weights, int offset) {
+		for (int i = 0; i < accumulator.length; i++) {
+			accumulator[i] = (short) (accumulator[i] + weights[offset + i]);
+		}
+	}
+
+	@Override
+	public void subtract(short[] accumulator, short[] weights, int offset) {
+		for (int i = 0; i < accumulator.length; i++) {
+			accumulator[i] = (short) (accumulator[i] - weights[offset + i]);
+		}
+	}
+
+	@Override
+	public long dot(short[] accumulator, short[] weights, int offset) {
+		long sum = 0;
+		for (int i = 0; i < accumulator.length; i++) {
+			int value = Math.min(Math.max(accumulator[i], 0), Network.QA);
+			sum += value * weights[offset + i];
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+/**
+ * This class packs a midgame and an endgame value into one int, so we can
+ * add, subtract and scale both values with a single operation. A score is
+ * represented by the following bits. Both values are signed, so we have to
+ * round the endgame value when we extract it.
+ * <ul>
+ * <li><code> 0 - 15</code>: midgame value</li>
+ * <li><code>16 - 31</code>: endgame value</li>
+ * </ul>
+ */
+final class Score {
+
+	static final int ZERO = 0;
+
+	// We are in the midgame with all pieces on the board and in the endgame
+	// with only kings and pawns left.
+	static final int MAX_PHASE = 24;
+
+	private Score() {
+	}
+
+	static int valueOf(int midgame, int endgame) {
+		return (endgame << 16) + midgame;
+	}
+
+	static int getMidgame(int score) {
+		return (short) score;
+	}
+
+	static int getEndgame(int score) {
+		return (short) ((score + 0x8000) >> 16);
+	}
+
+	/**
+	 * Interpolates between the midgame and the endgame value according to
+	 * the game phase.
+	 *
+	 * @param score the score.
+	 * @param phase the game phase between 0 (endgame) and MAX_PHASE (midgame).
+	 * @return the value in centipawns.
+	 */
+	static int interpolate(int score, int phase) {
+		return (getMidgame(score) * phase + getEndgame(score) * (MAX_PHASE - phase)) / MAX_PHASE;
+	}
+}
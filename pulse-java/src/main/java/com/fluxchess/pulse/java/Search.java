@@ -7,8 +7,13 @@
 package com.fluxchess.pulse.java;
 
 import com.fluxchess.pulse.java.model.Depth;
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.MoveType;
+import com.fluxchess.pulse.java.model.Piece;
 import com.fluxchess.pulse.java.model.Value;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -16,13 +21,15 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
-import static com.fluxchess.pulse.java.MoveList.MoveEntry;
 import static com.fluxchess.pulse.java.MoveList.MoveVariation;
 import static com.fluxchess.pulse.java.MoveList.RootEntry;
+import static com.fluxchess.pulse.java.MoveList.RootList;
 import static com.fluxchess.pulse.java.model.Color.WHITE;
-import static com.fluxchess.pulse.java.model.Color.opposite;
 import static com.fluxchess.pulse.java.model.Move.NOMOVE;
 import static java.lang.Math.abs;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Runtime.getRuntime;
 import static java.lang.Thread.currentThread;
 import static java.util.concurrent.Executors.newFixedThreadPool;
@@ -30,18 +37,34 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 final class Search {
 
-	private final ExecutorService threadPool = newFixedThreadPool(getRuntime().availableProcessors());
+	static final int DEFAULT_THREADS = 1;
+	static final int MAX_THREADS = getRuntime().availableProcessors();
+
+	private final ExecutorService threadPool = newFixedThreadPool(MAX_THREADS);
 	private Optional<Future<?>> future = Optional.empty();
+	private final List<Future<?>> helperFutures = new ArrayList<>();
 	private volatile boolean abort;
 
 	private final Protocol protocol;
 
-	private Position position;
-	private final Evaluation evaluation = new Evaluation();
-
-	// We will store a MoveGenerator for each ply so we don't have to create them
-	// in search. (which is expensive)
-	private final MoveGenerator[] moveGenerators = new MoveGenerator[Depth.MAX_PLY];
+	private Position rootPosition;
+	private final TranspositionTable transpositionTable = new TranspositionTable(TranspositionTable.DEFAULT_SIZE);
+	private final EvaluationTable evaluationTable = new EvaluationTable(EvaluationTable.DEFAULT_SIZE);
+	private Network network = null;
+
+	// The position and the root moves at the end of the last search. If we
+	// search the same position again, or a position on its principal
+	// variation, we start with these root moves. Ponder searches, stopped
+	// searches and the search after our move and the expected reply all
+	// start warm this way.
+	private Position previousPosition = null;
+	private final RootList previousRootMoves = new RootList();
+	private final RootList reusedRootMoves = new RootList();
+
+	// We will run one Worker per thread. The first one is our main worker, which
+	// reports to the protocol. All others are helpers, which share their results
+	// with the main worker only through the transposition table.
+	private Worker[] workers = new Worker[DEFAULT_THREADS];
 
 	// Depth search
 	private int searchDepth;
@@ -56,33 +79,58 @@ final class Search {
 	private boolean doTimeManagement;
 
 	// Search parameters
-	private final MoveList<RootEntry> rootMoves = new MoveList<>(RootEntry.class);
-	private long totalNodes;
 	private final int initialDepth = 1;
-	private int currentDepth;
-	private int currentMaxDepth;
-	private int currentMove;
-	private int currentMoveNumber;
-	private final MoveVariation[] pv = new MoveVariation[Depth.MAX_PLY + 1];
+
+	// Null-move pruning parameters. We reduce the null move search by one more
+	// ply at higher depths and verify a cut-off from this depth on.
+	private static final int NULLMOVE_MIN_DEPTH = 2;
+	private static final int NULLMOVE_REDUCTION_DEPTH = 6;
+	private static final int NULLMOVE_VERIFICATION_DEPTH = 8;
+
+	// Late move reductions. We look up the reduction of a quiet move by the
+	// depth and the number of the move.
+	private static final int LMR_MIN_DEPTH = 3;
+	private static final int LMR_MAX_INDEX = 64;
+	private static final int[][] lmrReductions = new int[LMR_MAX_INDEX][LMR_MAX_INDEX];
+
+	static {
+		for (int depth = 1; depth < LMR_MAX_INDEX; depth++) {
+			for (int moveNumber = 1; moveNumber < LMR_MAX_INDEX; moveNumber++) {
+				lmrReductions[depth][moveNumber] = (int) (0.5 + log(depth) * log(moveNumber) / 2.25);
+			}
+		}
+	}
+
+	// We remember this many quiet moves per node to lower their history on a
+	// cut-off by another move
+	private static final int MAX_QUIET_MOVES = 64;
+
+	// The main worker collects the node counts of the helpers and reports its
+	// status every 1024 nodes
+	private static final int STATUS_INTERVAL_MASK = 0x3FF;
+
+	// We start every iteration after the first one with a window of this size
+	// around the previous value. On a fail-low or fail-high we double it.
+	private static final int ASPIRATION_WINDOW = 25;
 
 	void newDepthSearch(Position position, int searchDepth) {
 		reset();
 
-		this.position = position;
+		this.rootPosition = position;
 		this.searchDepth = searchDepth;
 	}
 
 	void newNodesSearch(Position position, long searchNodes) {
 		reset();
 
-		this.position = position;
+		this.rootPosition = position;
 		this.searchNodes = searchNodes;
 	}
 
 	void newTimeSearch(Position position, long searchTime) {
 		reset();
 
-		this.position = position;
+		this.rootPosition = position;
 		this.searchTime = searchTime;
 		this.timer = new Timer(true);
 	}
@@ -90,7 +138,7 @@ final class Search {
 	void newInfiniteSearch(Position position) {
 		reset();
 
-		this.position = position;
+		this.rootPosition = position;
 	}
 
 	void newClockSearch(Position position,
@@ -106,7 +154,7 @@ final class Search {
 						 long whiteTimeLeft, long whiteTimeIncrement, long blackTimeLeft, long blackTimeIncrement, int movesToGo) {
 		reset();
 
-		this.position = position;
+		this.rootPosition = position;
 
 		long timeLeft;
 		long timeIncrement;
@@ -140,15 +188,53 @@ final class Search {
 	Search(Protocol protocol) {
 		this.protocol = protocol;
 
-		for (int i = 0; i < Depth.MAX_PLY; i++) {
-			moveGenerators[i] = new MoveGenerator();
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i);
+		}
+
+		reset();
+	}
+
+	void setHashSize(int megabytes) {
+		transpositionTable.resize(megabytes);
+	}
+
+	void setEvaluationHashSize(int megabytes) {
+		evaluationTable.resize(megabytes);
+	}
+
+	void setThreads(int threads) {
+		if (threads < 1 || threads > MAX_THREADS) {
+			throw new IllegalArgumentException();
 		}
 
-		for (int i = 0; i < pv.length; i++) {
-			pv[i] = new MoveVariation();
+		if (threads != workers.length) {
+			Worker[] newWorkers = new Worker[threads];
+			for (int i = 0; i < threads; i++) {
+				newWorkers[i] = i < workers.length ? workers[i] : new Worker(i);
+			}
+			workers = newWorkers;
 		}
+	}
 
-		reset();
+	/**
+	 * Sets the network to evaluate positions with. We evaluate with our
+	 * hand-written evaluation if the network is null.
+	 *
+	 * @param network the Network or null.
+	 */
+	void setNetwork(Network network) {
+		this.network = network;
+		evaluationTable.clear();
+	}
+
+	void newGame() {
+		previousPosition = null;
+		transpositionTable.clear();
+		evaluationTable.clear();
+		for (Worker worker : workers) {
+			worker.history.clear();
+		}
 	}
 
 	private void reset() {
@@ -158,19 +244,95 @@ final class Search {
 		timer = null;
 		timerStopped = false;
 		doTimeManagement = false;
-		rootMoves.size = 0;
 		abort = false;
-		totalNodes = 0;
-		currentDepth = initialDepth;
-		currentMaxDepth = 0;
-		currentMove = NOMOVE;
-		currentMoveNumber = 0;
+		for (Worker worker : workers) {
+			worker.reset();
+		}
+		transpositionTable.nextGeneration();
 	}
 
 	void start() {
 		if (future.isEmpty()) {
-			future = Optional.of(threadPool.submit(new Worker()));
+			reuseRootMoves();
+
+			// Start the helpers first. The main worker will wait for them.
+			helperFutures.clear();
+			for (int i = 1; i < workers.length; i++) {
+				helperFutures.add(threadPool.submit(workers[i]));
+			}
+
+			future = Optional.of(threadPool.submit(workers[0]));
+		}
+	}
+
+	/**
+	 * Takes over the root moves of the last search if we search the same
+	 * position again. If our position lies on the principal variation of the
+	 * last search, we take over the rest of it.
+	 */
+	private void reuseRootMoves() {
+		reusedRootMoves.size = 0;
+		if (previousPosition == null || previousRootMoves.size == 0) {
+			return;
+		}
+
+		if (previousPosition.zobristKey == rootPosition.zobristKey) {
+			for (int i = 0; i < previousRootMoves.size; i++) {
+				copyRootEntry(previousRootMoves.entries[i], 0, reusedRootMoves.entries[i]);
+			}
+			reusedRootMoves.size = previousRootMoves.size;
+		} else {
+			MoveVariation pv = previousRootMoves.entries[0].pv;
+			int ply = 0;
+			while (ply < pv.size - 1) {
+				previousPosition.makeMove(pv.moves[ply]);
+				ply++;
+
+				if (previousPosition.zobristKey == rootPosition.zobristKey) {
+					copyRootEntry(previousRootMoves.entries[0], ply, reusedRootMoves.entries[0]);
+					reusedRootMoves.size = 1;
+					break;
+				}
+			}
+
+			while (ply > 0) {
+				ply--;
+				previousPosition.undoMove(pv.moves[ply]);
+			}
+		}
+	}
+
+	/**
+	 * Copies the root entry starting at the given ply of its principal
+	 * variation. The value belongs to the root of the source, so we keep it
+	 * only if we copy the whole variation. Otherwise the first iteration will
+	 * set it.
+	 */
+	private static void copyRootEntry(RootEntry source, int ply, RootEntry destination) {
+		destination.move = source.pv.moves[ply];
+		destination.value = ply == 0 ? source.value : -Value.INFINITE;
+		destination.pv.size = source.pv.size - ply;
+		System.arraycopy(source.pv.moves, ply, destination.pv.moves, 0, destination.pv.size);
+	}
+
+	private static boolean contains(MoveList moves, int move) {
+		for (int i = 0; i < moves.size; i++) {
+			if (moves.moves[i] == move) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean contains(RootList rootMoves, int move) {
+		for (int i = 0; i < rootMoves.size; i++) {
+			if (rootMoves.entries[i].move == move) {
+				return true;
+			}
 		}
+
+		return false;
 	}
 
 	void stop() {
@@ -195,7 +357,7 @@ final class Search {
 
 			// If we finished the first iteration, we should have a result.
 			// In this case check the stop conditions.
-			if (currentDepth > initialDepth) {
+			if (workers[0].currentDepth > initialDepth) {
 				checkStopConditions();
 			}
 		});
@@ -215,6 +377,8 @@ final class Search {
 	}
 
 	private void checkStopConditions() {
+		Worker mainWorker = workers[0];
+
 		// We will check the stop conditions only if we are using time management,
 		// that is if our timer != null.
 		if (timer != null && doTimeManagement) {
@@ -222,19 +386,33 @@ final class Search {
 				abort = true;
 			} else {
 				// Check if we have only one move to make
-				if (rootMoves.size == 1) {
+				if (mainWorker.rootMoves.size == 1) {
 					abort = true;
 				} else
 
 					// Check if we have a checkmate
-					if (Value.isCheckmate(rootMoves.entries[0].value)
-						&& currentDepth >= (Value.CHECKMATE - abs(rootMoves.entries[0].value))) {
+					if (Value.isCheckmate(mainWorker.rootMoves.entries[0].value)
+						&& mainWorker.currentDepth >= (Value.CHECKMATE - abs(mainWorker.rootMoves.entries[0].value))) {
 						abort = true;
 					}
 			}
 		}
 	}
 
+	/**
+	 * Returns the sum of the node counters the helpers published last. During
+	 * the search the helpers publish them only from time to time, so the sum
+	 * is a bit behind. After the helpers finished, it is exact.
+	 */
+	private long getHelperNodes() {
+		long nodes = 0;
+		for (int i = 1; i < workers.length; i++) {
+			nodes += workers[i].publishedNodes;
+		}
+
+		return nodes;
+	}
+
 	/**
 	 * This is our search timer for time & clock & ponder searches.
 	 */
@@ -246,7 +424,7 @@ final class Search {
 
 			// If we finished the first iteration, we should have a result.
 			// In this case abort the search.
-			if (!doTimeManagement || currentDepth > initialDepth) {
+			if (!doTimeManagement || workers[0].currentDepth > initialDepth) {
 				abort = true;
 			}
 		}
@@ -254,33 +432,133 @@ final class Search {
 
 	private final class Worker implements Runnable {
 
+		private final boolean main;
+		private final int depthOffset;
+
+		private Position position;
+		private final Evaluation evaluation = new Evaluation(evaluationTable);
+
+		// We will store a MoveGenerator for each ply so we don't have to create them
+		// in search. (which is expensive)
+		private final MoveGenerator[] moveGenerators = new MoveGenerator[Depth.MAX_PLY];
+
+		private final RootList rootMoves = new RootList();
+		private long nodes;
+		private long helperNodes;
+
+		// The main worker reads the node counter of a helper while the helper
+		// writes it. We publish a copy from time to time instead, so the main
+		// worker never sees a torn or stale value.
+		private volatile long publishedNodes;
+		private int currentDepth;
+		private int currentMaxDepth;
+		private int currentMove;
+		private int currentMoveNumber;
+		private final MoveVariation[] pv = new MoveVariation[Depth.MAX_PLY + 1];
+
+		// Quiet moves which produced a cut-off at the same ply
+		private final int[][] killers = new int[Depth.MAX_PLY][2];
+
+		// History and countermoves survive between searches. We only clear them
+		// for a new game.
+		private final History history = new History();
+
+		// The move we made at every ply, and the quiet moves we searched at every
+		// ply without a cut-off
+		private final int[] playedMoves = new int[Depth.MAX_PLY];
+		private final int[][] quietMoves = new int[Depth.MAX_PLY][MAX_QUIET_MOVES];
+
+		// Whether we reached the ply with a null move, and the first ply at which
+		// we allow null moves again during a verification search
+		private final boolean[] nullMoves = new boolean[Depth.MAX_PLY + 1];
+		private int nullMoveMinPly;
+
+		// How often we probed the transposition table, and how often we found
+		// an entry of an earlier search
+		private long transpositionTableProbes;
+		private long transpositionTableReusedHits;
+
+		Worker(int id) {
+			this.main = id == 0;
+
+			// Let every other helper start one iteration deeper, so the threads don't
+			// search the same tree in lockstep.
+			this.depthOffset = id % 2;
+
+			for (int i = 0; i < Depth.MAX_PLY; i++) {
+				moveGenerators[i] = new MoveGenerator();
+			}
+
+			for (int i = 0; i < pv.length; i++) {
+				pv[i] = new MoveVariation();
+			}
+		}
+
+		private void reset() {
+			rootMoves.size = 0;
+			nodes = 0;
+			helperNodes = 0;
+			publishedNodes = 0;
+			currentDepth = initialDepth;
+			currentMaxDepth = 0;
+			currentMove = NOMOVE;
+			currentMoveNumber = 0;
+			nullMoveMinPly = 0;
+			transpositionTableProbes = 0;
+			transpositionTableReusedHits = 0;
+			evaluation.evaluationTableProbes = 0;
+			evaluation.evaluationTableHits = 0;
+			for (int[] killer : killers) {
+				killer[0] = NOMOVE;
+				killer[1] = NOMOVE;
+			}
+		}
+
 		@Override
 		public void run() {
-			if (timer != null) {
-				timer.schedule(new SearchTimer(), searchTime);
+			// Every worker searches its own copy of the position
+			position = new Position(rootPosition);
+			position.setNetwork(network);
+
+			// Populate root move list. We start with the moves we took over from
+			// the last search.
+			MoveList moves = moveGenerators[0].getLegalMoves(position, 1, position.isCheck());
+			for (int i = 0; i < reusedRootMoves.size; i++) {
+				RootEntry entry = reusedRootMoves.entries[i];
+				if (contains(moves, entry.move)) {
+					copyRootEntry(entry, 0, rootMoves.entries[rootMoves.size]);
+					rootMoves.size++;
+				}
 			}
-
-			// Populate root move list
-			MoveList<MoveEntry> moves = moveGenerators[0].getLegalMoves(position, 1, position.isCheck());
 			for (int i = 0; i < moves.size; i++) {
-				int move = moves.entries[i].move;
-				rootMoves.entries[rootMoves.size].move = move;
-				rootMoves.entries[rootMoves.size].pv.moves[0] = move;
-				rootMoves.entries[rootMoves.size].pv.size = 1;
-				rootMoves.size++;
+				int move = moves.moves[i];
+				if (!contains(rootMoves, move)) {
+					rootMoves.entries[rootMoves.size].move = move;
+					rootMoves.entries[rootMoves.size].pv.moves[0] = move;
+					rootMoves.entries[rootMoves.size].pv.size = 1;
+					rootMoves.size++;
+				}
+			}
+
+			if (main) {
+				runMain();
+			} else {
+				runHelper();
+			}
+		}
+
+		private void runMain() {
+			if (timer != null) {
+				timer.schedule(new SearchTimer(), searchTime);
 			}
 
 			//### BEGIN Iterative Deepening
 			for (int depth = initialDepth; depth <= searchDepth; depth++) {
 				currentDepth = depth;
 				currentMaxDepth = 0;
-				protocol.sendStatus(false, currentDepth, currentMaxDepth, totalNodes, currentMove, currentMoveNumber);
+				protocol.sendStatus(false, currentDepth, currentMaxDepth, nodes + helperNodes, currentMove, currentMoveNumber);
 
-				searchRoot(currentDepth, -Value.INFINITE, Value.INFINITE);
-
-				// Sort the root move list, so that the next iteration begins with the
-				// best move first.
-				rootMoves.sort();
+				searchAspiration(currentDepth);
 
 				checkStopConditions();
 
@@ -290,12 +568,34 @@ final class Search {
 			}
 			//### ENDOF Iterative Deepening
 
+			// Stop all helpers and wait for them, so our statistics are complete
+			abort = true;
+			for (Future<?> helperFuture : helperFutures) {
+				try {
+					helperFuture.get();
+				} catch (InterruptedException e) {
+					currentThread().interrupt();
+				} catch (ExecutionException e) {
+					protocol.sendInfo("Search aborted with an error: " + e.getCause().getMessage());
+				}
+			}
+			helperNodes = getHelperNodes();
+
 			if (timer != null) {
 				timer.cancel();
 			}
 
 			// Update all stats
-			protocol.sendStatus(true, currentDepth, currentMaxDepth, totalNodes, currentMove, currentMoveNumber);
+			protocol.sendStatus(true, currentDepth, currentMaxDepth, nodes + helperNodes, currentMove, currentMoveNumber);
+			sendEvaluationTableStatus();
+			sendReuseStatus();
+
+			// Keep our root moves for the next search
+			previousPosition = new Position(rootPosition);
+			for (int i = 0; i < rootMoves.size; i++) {
+				copyRootEntry(rootMoves.entries[i], 0, previousRootMoves.entries[i]);
+			}
+			previousRootMoves.size = rootMoves.size;
 
 			// Send the best move and ponder move
 			int bestMove = NOMOVE;
@@ -311,31 +611,144 @@ final class Search {
 			protocol.sendBestMove(bestMove, ponderMove);
 		}
 
+		private void sendEvaluationTableStatus() {
+			long probes = 0;
+			long hits = 0;
+			for (Worker worker : workers) {
+				probes += worker.evaluation.evaluationTableProbes;
+				hits += worker.evaluation.evaluationTableHits;
+			}
+
+			if (probes > 0) {
+				protocol.sendDebug("Evaluation table hits: " + hits + " of " + probes + " probes ("
+					+ (hits * 100 / probes) + "%)");
+			}
+		}
+
+		private void sendReuseStatus() {
+			if (reusedRootMoves.size > 0 && rootMoves.size > 0) {
+				protocol.sendDebug("Reused " + reusedRootMoves.size + " root moves of the last search, best move "
+					+ (rootMoves.entries[0].move == reusedRootMoves.entries[0].move ? "confirmed" : "changed"));
+			}
+
+			long probes = 0;
+			long hits = 0;
+			for (Worker worker : workers) {
+				probes += worker.transpositionTableProbes;
+				hits += worker.transpositionTableReusedHits;
+			}
+
+			if (probes > 0) {
+				protocol.sendDebug("Transposition table hits of earlier searches: " + hits + " of " + probes + " probes ("
+					+ (hits * 100 / probes) + "%)");
+			}
+		}
+
+		private void runHelper() {
+			//### BEGIN Iterative Deepening
+			for (int depth = initialDepth + depthOffset; depth <= searchDepth && !abort; depth++) {
+				currentDepth = depth;
+				currentMaxDepth = 0;
+
+				searchAspiration(currentDepth);
+			}
+			//### ENDOF Iterative Deepening
+
+			publishedNodes = nodes;
+		}
+
 		private void updateSearch(int ply) {
-			totalNodes++;
+			nodes++;
 
 			if (ply > currentMaxDepth) {
 				currentMaxDepth = ply;
 			}
 
-			if (searchNodes <= totalNodes) {
-				// Hard stop on number of nodes
-				abort = true;
+			pv[ply].size = 0;
+
+			if (main) {
+				// Reading the node counters of the helpers and the clock is
+				// expensive, so we collect the counters and report our status only
+				// from time to time.
+				boolean update = (nodes & STATUS_INTERVAL_MASK) == 0;
+				if (update) {
+					helperNodes = getHelperNodes();
+				}
+				long totalNodes = nodes + helperNodes;
+
+				if (searchNodes <= totalNodes) {
+					// Hard stop on number of nodes
+					abort = true;
+				}
+
+				if (update) {
+					protocol.sendStatus(currentDepth, currentMaxDepth, totalNodes, currentMove, currentMoveNumber);
+				}
+			} else if ((nodes & STATUS_INTERVAL_MASK) == 0) {
+				publishedNodes = nodes;
 			}
+		}
 
-			pv[ply].size = 0;
+		/**
+		 * Searches the root moves with an aspiration window around the value of
+		 * the previous iteration. If the value falls outside of the window, we
+		 * widen the window on that side and search again.
+		 */
+		private void searchAspiration(int depth) {
+			int alpha = -Value.INFINITE;
+			int beta = Value.INFINITE;
+			int delta = ASPIRATION_WINDOW;
+
+			// We only have a previous value after the first iteration
+			int previousValue = rootMoves.size > 0 ? rootMoves.entries[0].value : -Value.INFINITE;
+			if (depth > initialDepth && abs(previousValue) < Value.CHECKMATE_THRESHOLD) {
+				alpha = max(previousValue - delta, -Value.INFINITE);
+				beta = min(previousValue + delta, Value.INFINITE);
+			}
+
+			while (true) {
+				int value = searchRoot(depth, alpha, beta);
+
+				// Sort the root move list, so that the next search begins with the
+				// best move first.
+				rootMoves.sort();
+
+				if (abort) {
+					return;
+				}
 
-			protocol.sendStatus(currentDepth, currentMaxDepth, totalNodes, currentMove, currentMoveNumber);
+				if (value <= alpha && alpha > -Value.INFINITE) {
+					// Fail-low. Widen the window downwards.
+					alpha = max(value - delta, -Value.INFINITE);
+				} else if (value >= beta && beta < Value.INFINITE) {
+					// Fail-high. Widen the window upwards.
+					beta = min(value + delta, Value.INFINITE);
+				} else {
+					return;
+				}
+
+				delta *= 2;
+			}
 		}
 
-		private void searchRoot(int depth, int alpha, int beta) {
+		/**
+		 * Searches the root moves with the given window. We use PVS, so the
+		 * first move is searched with the full window and all other moves with a
+		 * null window. Only if a move beats alpha, we search it again with the
+		 * full window.
+		 *
+		 * @return the best value. If it is outside of the window, it is only a
+		 * bound.
+		 */
+		private int searchRoot(int depth, int alpha, int beta) {
 			int ply = 0;
+			int bestValue = -Value.INFINITE;
 
 			updateSearch(ply);
 
 			// Abort conditions
 			if (abort) {
-				return;
+				return bestValue;
 			}
 
 			// Reset all values, so the best move is pushed to the front
@@ -348,25 +761,48 @@ final class Search {
 
 				currentMove = move;
 				currentMoveNumber = i + 1;
-				protocol.sendStatus(false, currentDepth, currentMaxDepth, totalNodes, currentMove, currentMoveNumber);
+				if (main) {
+					protocol.sendStatus(false, currentDepth, currentMaxDepth, nodes + helperNodes, currentMove, currentMoveNumber);
+				}
 
+				playedMoves[ply] = move;
 				position.makeMove(move);
-				int value = -search(depth - 1, -beta, -alpha, ply + 1);
+				int value;
+				if (i == 0) {
+					value = -search(depth - 1, -beta, -alpha, ply + 1);
+				} else {
+					value = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+					if (value > alpha && !abort) {
+						value = -search(depth - 1, -beta, -alpha, ply + 1);
+					}
+				}
 				position.undoMove(move);
 
 				if (abort) {
-					return;
+					return bestValue;
+				}
+
+				if (value > bestValue) {
+					bestValue = value;
 				}
 
 				// Do we have a better value?
 				if (value > alpha) {
-					alpha = value;
-
 					// We found a new best move
 					rootMoves.entries[i].value = value;
 					savePV(move, pv[ply + 1], rootMoves.entries[i].pv);
 
-					protocol.sendMove(rootMoves.entries[i], currentDepth, currentMaxDepth, totalNodes);
+					// Is the value higher than beta?
+					if (value >= beta) {
+						// Fail-high. We will search again with a wider window.
+						break;
+					}
+
+					alpha = value;
+
+					if (main) {
+						protocol.sendMove(rootMoves.entries[i], currentDepth, currentMaxDepth, nodes + helperNodes);
+					}
 				}
 			}
 
@@ -375,6 +811,8 @@ final class Search {
 				// further. Abort!
 				abort = true;
 			}
+
+			return bestValue;
 		}
 
 		private int search(int depth, int alpha, int beta, int ply) {
@@ -396,20 +834,101 @@ final class Search {
 				return Value.DRAW;
 			}
 
+			// Probe the transposition table
+			int transpositionMove = NOMOVE;
+			transpositionTableProbes++;
+			long entry = transpositionTable.probe(position.zobristKey);
+			if (entry != TranspositionTable.NOENTRY) {
+				if (transpositionTable.isFromEarlierSearch(entry)) {
+					transpositionTableReusedHits++;
+				}
+				transpositionMove = TranspositionTable.getMove(entry);
+
+				if (TranspositionTable.getDepth(entry) >= depth && isTranspositionCutoff(entry, alpha, beta, ply)) {
+					return TranspositionTable.getValue(entry, ply);
+				}
+			}
+
 			// Initialize
 			int bestValue = -Value.INFINITE;
+			int bestMove = NOMOVE;
+			int oldAlpha = alpha;
 			int searchedMoves = 0;
+			int searchedQuietMoves = 0;
 			boolean isCheck = position.isCheck();
 
-			MoveList<MoveEntry> moves = moveGenerators[ply].getMoves(position, depth, isCheck);
-			for (int i = 0; i < moves.size; i++) {
-				int move = moves.entries[i].move;
-				int value = bestValue;
+			//### BEGIN Null-move pruning
+			if (isNullMoveAllowed(depth, alpha, beta, ply, isCheck)) {
+				int reduction = depth > NULLMOVE_REDUCTION_DEPTH ? 3 : 2;
+
+				// Pass the move to our opponent. If we still beat beta, our position
+				// is so good that we don't have to search it any further.
+				playedMoves[ply] = NOMOVE;
+				position.makeNullMove();
+				nullMoves[ply + 1] = true;
+				int value = -search(depth - reduction - 1, -beta, -beta + 1, ply + 1);
+				nullMoves[ply + 1] = false;
+				position.undoNullMove();
 
+				if (abort) {
+					return bestValue;
+				}
+
+				if (value >= beta) {
+					// Don't return unproven mate values
+					if (value >= Value.CHECKMATE_THRESHOLD) {
+						value = beta;
+					}
+
+					if (depth < NULLMOVE_VERIFICATION_DEPTH) {
+						return value;
+					}
+
+					// In a zugzwang position, passing is better than every real move.
+					// So we verify the cut-off with a reduced search without null moves.
+					int oldNullMoveMinPly = nullMoveMinPly;
+					nullMoveMinPly = ply + depth - reduction;
+					int verificationValue = search(depth - reduction, beta - 1, beta, ply);
+					nullMoveMinPly = oldNullMoveMinPly;
+
+					if (abort) {
+						return bestValue;
+					}
+
+					if (verificationValue >= beta) {
+						return value;
+					}
+
+					pv[ply].size = 0;
+				}
+			}
+			//### ENDOF Null-move pruning
+
+			MoveGenerator moveGenerator = moveGenerators[ply];
+			moveGenerator.initMoves(position, depth, isCheck, transpositionMove,
+				killers[ply][0], killers[ply][1], history.getCounterMove(playedMoves[ply - 1]), history);
+			for (int move = moveGenerator.nextMove(); move != NOMOVE; move = moveGenerator.nextMove()) {
+				// The move generator only returns legal moves
+				searchedMoves++;
+
+				// Search the first move with the full window. We expect all other
+				// moves to be worse, so we try to prove that with a null window first.
+				playedMoves[ply] = move;
 				position.makeMove(move);
-				if (!position.isCheck(opposite(position.activeColor))) {
-					searchedMoves++;
+				int value;
+				if (searchedMoves == 1) {
 					value = -search(depth - 1, -beta, -alpha, ply + 1);
+				} else {
+					// Late quiet moves are searched with a reduced depth first
+					int reduction = getReduction(move, depth, searchedMoves, alpha, beta, ply, isCheck);
+
+					value = -search(depth - reduction - 1, -alpha - 1, -alpha, ply + 1);
+					if (value > alpha && reduction > 0 && !abort) {
+						value = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+					}
+					if (value > alpha && value < beta && !abort) {
+						value = -search(depth - 1, -beta, -alpha, ply + 1);
+					}
 				}
 				position.undoMove(move);
 
@@ -424,15 +943,23 @@ final class Search {
 					// Do we have a better value?
 					if (value > alpha) {
 						alpha = value;
+						bestMove = move;
 						savePV(move, pv[ply + 1], pv[ply]);
 
 						// Is the value higher than beta?
 						if (value >= beta) {
 							// Cut-off
+							if (isQuiet(move)) {
+								updateQuietMoves(move, depth, ply, searchedQuietMoves);
+							}
 							break;
 						}
 					}
 				}
+
+				if (isQuiet(move) && searchedQuietMoves < MAX_QUIET_MOVES) {
+					quietMoves[ply][searchedQuietMoves++] = move;
+				}
 			}
 
 			// If we cannot move, check for checkmate and stalemate.
@@ -446,6 +973,8 @@ final class Search {
 				}
 			}
 
+			storeTransposition(depth, bestValue, oldAlpha, beta, bestMove, ply);
+
 			return bestValue;
 		}
 
@@ -462,8 +991,26 @@ final class Search {
 				return Value.DRAW;
 			}
 
+			// Probe the transposition table. Every entry has at least the
+			// quiescent depth.
+			int transpositionMove = NOMOVE;
+			transpositionTableProbes++;
+			long entry = transpositionTable.probe(position.zobristKey);
+			if (entry != TranspositionTable.NOENTRY) {
+				if (transpositionTable.isFromEarlierSearch(entry)) {
+					transpositionTableReusedHits++;
+				}
+				transpositionMove = TranspositionTable.getMove(entry);
+
+				if (isTranspositionCutoff(entry, alpha, beta, ply)) {
+					return TranspositionTable.getValue(entry, ply);
+				}
+			}
+
 			// Initialize
 			int bestValue = -Value.INFINITE;
+			int bestMove = NOMOVE;
+			int oldAlpha = alpha;
 			int searchedMoves = 0;
 			boolean isCheck = position.isCheck();
 
@@ -484,16 +1031,20 @@ final class Search {
 			}
 			//### ENDOF Stand pat
 
-			MoveList<MoveEntry> moves = moveGenerators[ply].getMoves(position, depth, isCheck);
-			for (int i = 0; i < moves.size; i++) {
-				int move = moves.entries[i].move;
-				int value = bestValue;
+			MoveGenerator moveGenerator = moveGenerators[ply];
+			moveGenerator.initMoves(position, depth, isCheck, transpositionMove, NOMOVE, NOMOVE, NOMOVE, history);
+			for (int move = moveGenerator.nextMove(); move != NOMOVE; move = moveGenerator.nextMove()) {
+				// All remaining captures lose material according to the static
+				// exchange evaluation. They will hardly raise our stand pat value.
+				if (!isCheck && moveGenerator.isBadCaptureStage()) {
+					break;
+				}
+
+				// The move generator only returns legal moves
+				searchedMoves++;
 
 				position.makeMove(move);
-				if (!position.isCheck(opposite(position.activeColor))) {
-					searchedMoves++;
-					value = -quiescent(depth - 1, -beta, -alpha, ply + 1);
-				}
+				int value = -quiescent(depth - 1, -beta, -alpha, ply + 1);
 				position.undoMove(move);
 
 				if (abort) {
@@ -507,6 +1058,7 @@ final class Search {
 					// Do we have a better value?
 					if (value > alpha) {
 						alpha = value;
+						bestMove = move;
 						savePV(move, pv[ply + 1], pv[ply]);
 
 						// Is the value higher than beta?
@@ -524,9 +1076,116 @@ final class Search {
 				return -Value.CHECKMATE + ply;
 			}
 
+			storeTransposition(0, bestValue, oldAlpha, beta, bestMove, ply);
+
 			return bestValue;
 		}
 
+		/**
+		 * Returns whether we may try a null move. We don't pass in check, in
+		 * principal variation nodes, right after another null move and if we
+		 * only have pawns left, because zugzwang is too common there.
+		 */
+		private boolean isNullMoveAllowed(int depth, int alpha, int beta, int ply, boolean isCheck) {
+			return depth >= NULLMOVE_MIN_DEPTH
+				&& !isCheck
+				&& beta - alpha == 1
+				&& abs(beta) < Value.CHECKMATE_THRESHOLD
+				&& !nullMoves[ply]
+				&& ply >= nullMoveMinPly
+				&& position.hasNonPawnMaterial(position.activeColor)
+				&& evaluation.evaluate(position) >= beta;
+		}
+
+		/**
+		 * Returns the late move reduction of the move. The move has already been
+		 * made. We don't reduce captures, promotions, check evasions and moves
+		 * which give check. Killer moves and moves in principal variation nodes
+		 * are reduced by one ply less.
+		 */
+		private int getReduction(int move, int depth, int moveNumber, int alpha, int beta, int ply, boolean isCheck) {
+			if (depth < LMR_MIN_DEPTH
+				|| isCheck
+				|| Move.getTargetPiece(move) != Piece.NOPIECE
+				|| Move.getType(move) == MoveType.PAWNPROMOTION
+				|| position.isCheck()) {
+				return 0;
+			}
+
+			int reduction = lmrReductions[min(depth, LMR_MAX_INDEX - 1)][min(moveNumber, LMR_MAX_INDEX - 1)];
+			if (move == killers[ply][0] || move == killers[ply][1]) {
+				reduction--;
+			}
+			if (beta - alpha > 1) {
+				reduction--;
+			}
+
+			// Always leave at least one ply
+			return max(0, min(reduction, depth - 2));
+		}
+
+		private boolean isQuiet(int move) {
+			return Move.getTargetPiece(move) == Piece.NOPIECE;
+		}
+
+		/**
+		 * Updates the killer moves, the history and the countermove after the
+		 * quiet move produced a cut-off. All quiet moves we searched before lose
+		 * some of their history.
+		 */
+		private void updateQuietMoves(int move, int depth, int ply, int searchedQuietMoves) {
+			if (killers[ply][0] != move) {
+				killers[ply][1] = killers[ply][0];
+				killers[ply][0] = move;
+			}
+
+			int bonus = depth * depth;
+			history.update(position.activeColor, move, bonus);
+			for (int i = 0; i < searchedQuietMoves; i++) {
+				history.update(position.activeColor, quietMoves[ply][i], -bonus);
+			}
+
+			history.setCounterMove(playedMoves[ply - 1], move);
+		}
+
+		/**
+		 * Returns whether the entry allows us to cut off the search. An exact
+		 * value also becomes the principal variation, so we don't lose the
+		 * ponder move.
+		 */
+		private boolean isTranspositionCutoff(long entry, int alpha, int beta, int ply) {
+			int value = TranspositionTable.getValue(entry, ply);
+
+			switch (TranspositionTable.getBound(entry)) {
+				case TranspositionTable.EXACT:
+					int move = TranspositionTable.getMove(entry);
+					if (move != NOMOVE) {
+						pv[ply].moves[0] = move;
+						pv[ply].size = 1;
+					}
+					return true;
+				case TranspositionTable.LOWER:
+					return value >= beta;
+				case TranspositionTable.UPPER:
+					return value <= alpha;
+				default:
+					return false;
+			}
+		}
+
+		private void storeTransposition(int depth, int bestValue, int alpha, int beta, int bestMove, int ply) {
+			int bound;
+			if (bestValue >= beta) {
+				bound = TranspositionTable.LOWER;
+			} else if (bestValue > alpha) {
+				bound = TranspositionTable.EXACT;
+			} else {
+				bound = TranspositionTable.UPPER;
+			}
+
+			transpositionTable.put(position.zobristKey, depth, bestValue, bound, bestMove, ply);
+		}
+
 		private void savePV(int move, MoveVariation src, MoveVariation dest) {
 			dest.moves[0] = move;
 			System.arraycopy(src.moves, 0, dest.moves, 1, src.size);
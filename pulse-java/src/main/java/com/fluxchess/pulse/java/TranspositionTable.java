@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Value;
+
+import java.util.Arrays;
+
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
+
+/**
+ * This class stores search results keyed by the zobrist key of a position.
+ * All entries live in a single long array. Each bucket holds two slots, a
+ * depth-preferred slot and an always-replace slot. A slot consists of two
+ * longs, the key xor'ed with the data and the data itself. We only accept a
+ * slot if both longs match again, so torn writes are detected without locks.
+ * The data is represented by the following bits.
+ * <ul>
+ * <li><code> 0 - 29</code>: move</li>
+ * <li><code>30 - 49</code>: value</li>
+ * <li><code>50 - 56</code>: depth</li>
+ * <li><code>57 - 58</code>: bound</li>
+ * <li><code>59 - 63</code>: generation</li>
+ * </ul>
+ */
+final class TranspositionTable {
+
+	static final int DEFAULT_SIZE = 16;
+	static final int MIN_SIZE = 1;
+	static final int MAX_SIZE = 1024;
+
+	static final int NOBOUND = 0;
+	static final int LOWER = 1;
+	static final int UPPER = 2;
+	static final int EXACT = 3;
+
+	// A probe returns NOENTRY if nothing was found
+	static final long NOENTRY = 0;
+
+	private static final int SLOT_SIZE = 2;
+	private static final int BUCKET_SIZE = 2 * SLOT_SIZE;
+
+	// These are our bit masks
+	private static final int MOVE_SHIFT = 0;
+	private static final long MOVE_MASK = 0x3FFFFFFFL << MOVE_SHIFT;
+	private static final int VALUE_SHIFT = 30;
+	private static final long VALUE_MASK = 0xFFFFFL << VALUE_SHIFT;
+	private static final int VALUE_OFFSET = 1 << 19;
+	private static final int DEPTH_SHIFT = 50;
+	private static final long DEPTH_MASK = 0x7FL << DEPTH_SHIFT;
+	private static final int BOUND_SHIFT = 57;
+	private static final long BOUND_MASK = 0x3L << BOUND_SHIFT;
+	private static final int GENERATION_SHIFT = 59;
+	private static final long GENERATION_MASK = 0x1FL << GENERATION_SHIFT;
+
+	private long[] entries;
+	private int bucketMask;
+	private int generation = 0;
+
+	TranspositionTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	/**
+	 * Resizes the table to the largest power of two number of buckets which
+	 * fits into the given megabytes. All entries are lost.
+	 *
+	 * @param megabytes the size in megabytes.
+	 */
+	void resize(int megabytes) {
+		if (megabytes < MIN_SIZE || megabytes > MAX_SIZE) {
+			throw new IllegalArgumentException();
+		}
+
+		long buckets = ((long) megabytes * 1024 * 1024) / (Long.BYTES * BUCKET_SIZE);
+		int size = Long.numberOfTrailingZeros(Long.highestOneBit(buckets));
+
+		// Release the old table first, so we don't need twice the memory
+		entries = null;
+		entries = new long[(1 << size) * BUCKET_SIZE];
+		bucketMask = (1 << size) - 1;
+		generation = 0;
+	}
+
+	void clear() {
+		Arrays.fill(entries, 0);
+		generation = 0;
+	}
+
+	/**
+	 * Starts a new search. Entries from older searches will be replaced first.
+	 */
+	void nextGeneration() {
+		generation = (generation + 1) & (int) (GENERATION_MASK >>> GENERATION_SHIFT);
+	}
+
+	/**
+	 * Returns whether the entry was stored by an earlier search. We keep the
+	 * table between searches, so we can tell how much of it we reuse.
+	 */
+	boolean isFromEarlierSearch(long data) {
+		return getGeneration(data) != generation;
+	}
+
+	long probe(long zobristKey) {
+		int index = getIndex(zobristKey);
+
+		for (int i = index; i < index + BUCKET_SIZE; i += SLOT_SIZE) {
+			long data = entries[i + 1];
+			if ((entries[i] ^ data) == zobristKey && data != NOENTRY) {
+				return data;
+			}
+		}
+
+		return NOENTRY;
+	}
+
+	void put(long zobristKey, int depth, int value, int bound, int move, int ply) {
+		int index = getIndex(zobristKey);
+
+		// Use the depth-preferred slot if we have an equal or better depth, if it
+		// stores the same position or if it is from an older search. Otherwise use
+		// the always-replace slot.
+		long data = entries[index + 1];
+		if (depth >= getDepth(data)
+			|| (entries[index] ^ data) == zobristKey
+			|| getGeneration(data) != generation) {
+			// Keep the move if we don't have a new one for the same position
+			if (move == NOMOVE && (entries[index] ^ data) == zobristKey && data != NOENTRY) {
+				move = getMove(data);
+			}
+		} else {
+			index += SLOT_SIZE;
+		}
+
+		long newData = valueOf(depth, toTableValue(value, ply), bound, move, generation);
+		entries[index] = zobristKey ^ newData;
+		entries[index + 1] = newData;
+	}
+
+	private int getIndex(long zobristKey) {
+		return ((int) zobristKey & bucketMask) * BUCKET_SIZE;
+	}
+
+	private static long valueOf(int depth, int value, int bound, int move, int generation) {
+		long data = 0;
+
+		// Encode move
+		data |= ((long) move << MOVE_SHIFT) & MOVE_MASK;
+
+		// Encode value
+		data |= ((long) (value + VALUE_OFFSET) << VALUE_SHIFT) & VALUE_MASK;
+
+		// Encode depth
+		data |= ((long) depth << DEPTH_SHIFT) & DEPTH_MASK;
+
+		// Encode bound
+		data |= ((long) bound << BOUND_SHIFT) & BOUND_MASK;
+
+		// Encode generation
+		data |= ((long) generation << GENERATION_SHIFT) & GENERATION_MASK;
+
+		return data;
+	}
+
+	static int getMove(long data) {
+		return (int) ((data & MOVE_MASK) >>> MOVE_SHIFT);
+	}
+
+	/**
+	 * Returns the value of the entry. Checkmate values are stored relative to
+	 * the position, so we have to adjust them to the current ply.
+	 *
+	 * @param data the entry data.
+	 * @param ply  the current ply.
+	 * @return the value.
+	 */
+	static int getValue(long data, int ply) {
+		int value = (int) ((data & VALUE_MASK) >>> VALUE_SHIFT) - VALUE_OFFSET;
+
+		if (value >= Value.CHECKMATE_THRESHOLD) {
+			value -= ply;
+		} else if (value <= -Value.CHECKMATE_THRESHOLD) {
+			value += ply;
+		}
+
+		return value;
+	}
+
+	static int getDepth(long data) {
+		return (int) ((data & DEPTH_MASK) >>> DEPTH_SHIFT);
+	}
+
+	static int getBound(long data) {
+		return (int) ((data & BOUND_MASK) >>> BOUND_SHIFT);
+	}
+
+	private static int getGeneration(long data) {
+		return (int) ((data & GENERATION_MASK) >>> GENERATION_SHIFT);
+	}
+
+	private static int toTableValue(int value, int ply) {
+		if (value >= Value.CHECKMATE_THRESHOLD) {
+			return value + ply;
+		} else if (value <= -Value.CHECKMATE_THRESHOLD) {
+			return value - ply;
+		}
+
+		return value;
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.MoveType;
+import com.fluxchess.pulse.java.model.PieceType;
+import com.fluxchess.pulse.java.model.Square;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.Thread.currentThread;
+
+/**
+ * This class formats UCI output lines and hands them to a writer thread, so
+ * the search never waits for a slow GUI. UCI output is plain ASCII, so we
+ * write every char as one byte.
+ * <p>
+ * The lines are passed through a bounded lock-free queue. Only one thread
+ * may format and queue lines at a time, which is the main worker of the
+ * search. The writer thread collects all queued lines and writes them with
+ * a single call. If the GUI falls behind, we keep only the latest status
+ * line and drop info lines once the queue is full. Lines queued with
+ * writeLine() are never dropped.
+ */
+final class UciWriter {
+
+	// The queue holds at most CAPACITY - 1 lines. We keep one slot for the
+	// line the writer thread is copying.
+	static final int CAPACITY = 256;
+	private static final int MASK = CAPACITY - 1;
+
+	// The UCI names of all squares and promotion piece types
+	private static final byte[][] squareNames = new byte[Square.VALUES_LENGTH][];
+	private static final byte[] promotionNames = new byte[PieceType.values.length];
+
+	static {
+		for (int square : Square.values) {
+			squareNames[square] = new byte[]{
+				(byte) ('a' + Square.getFile(square)),
+				(byte) ('1' + Square.getRank(square))
+			};
+		}
+
+		promotionNames[PieceType.KNIGHT] = 'n';
+		promotionNames[PieceType.BISHOP] = 'b';
+		promotionNames[PieceType.ROOK] = 'r';
+		promotionNames[PieceType.QUEEN] = 'q';
+	}
+
+	private static final class Line {
+		// A principal variation has at most Depth.MAX_PLY moves. We grow the
+		// buffer only for longer lines.
+		private byte[] bytes = new byte[256];
+		private int size = 0;
+	}
+
+	private final PrintStream output;
+	private final Thread thread;
+
+	// We never copy lines into the queue. Instead we swap our line with the
+	// free one in the slot.
+	private final Line[] lines = new Line[CAPACITY];
+
+	// The index of the next line to write and the index of the next free slot
+	// packed into one long, so the writer thread can take a line and we can
+	// take back our status line with a single compare-and-set.
+	private final AtomicLong indices = new AtomicLong();
+
+	private volatile boolean closed = false;
+
+	// The index of the next line the writer thread has not written yet
+	private volatile int written = 0;
+
+	// The line we are formatting and whether the last queued line is a
+	// status line
+	private Line line = new Line();
+	private boolean statusQueued = false;
+
+	// The lines the writer thread collected for the next write and the index
+	// of the next line after them
+	private byte[] batch = new byte[4096];
+	private int batchSize = 0;
+	private int batchEnd = 0;
+
+	UciWriter(PrintStream output) {
+		this.output = output;
+
+		for (int i = 0; i < CAPACITY; i++) {
+			lines[i] = new Line();
+		}
+
+		thread = new Thread(this::write, "UciWriter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static long pack(int head, int tail) {
+		return ((long) head << 32) | (tail & 0xFFFFFFFFL);
+	}
+
+	private static int getHead(long indices) {
+		return (int) (indices >>> 32);
+	}
+
+	private static int getTail(long indices) {
+		return (int) indices;
+	}
+
+	UciWriter append(String token) {
+		ensureCapacity(token.length());
+		for (int i = 0; i < token.length(); i++) {
+			line.bytes[line.size++] = (byte) token.charAt(i);
+		}
+
+		return this;
+	}
+
+	UciWriter append(long value) {
+		// A long has at most 19 digits and a sign
+		ensureCapacity(20);
+
+		byte[] bytes = line.bytes;
+		if (value < 0) {
+			bytes[line.size++] = '-';
+			value = -value;
+		}
+
+		int start = line.size;
+		do {
+			// Long.MIN_VALUE stays negative, so we use the absolute remainder
+			bytes[line.size++] = (byte) ('0' + Math.abs(value % 10));
+			value /= 10;
+		} while (value != 0);
+
+		// We wrote the digits in reverse order
+		for (int i = start, j = line.size - 1; i < j; i++, j--) {
+			byte digit = bytes[i];
+			bytes[i] = bytes[j];
+			bytes[j] = digit;
+		}
+
+		return this;
+	}
+
+	UciWriter appendMove(int move) {
+		ensureCapacity(5);
+
+		byte[] bytes = line.bytes;
+		byte[] originName = squareNames[Move.getOriginSquare(move)];
+		byte[] targetName = squareNames[Move.getTargetSquare(move)];
+		bytes[line.size++] = originName[0];
+		bytes[line.size++] = originName[1];
+		bytes[line.size++] = targetName[0];
+		bytes[line.size++] = targetName[1];
+		if (Move.getType(move) == MoveType.PAWNPROMOTION) {
+			bytes[line.size++] = promotionNames[Move.getPromotion(move)];
+		}
+
+		return this;
+	}
+
+	private void ensureCapacity(int length) {
+		if (line.size + length > line.bytes.length) {
+			line.bytes = Arrays.copyOf(line.bytes, Math.max(line.bytes.length * 2, line.size + length));
+		}
+	}
+
+	/**
+	 * Queues the formatted line. If the queue is full, we wait for the writer
+	 * thread. Use this only for lines which must not be dropped, like the
+	 * best move, and never in the middle of the search.
+	 */
+	void writeLine() {
+		while (!offer(false)) {
+			LockSupport.unpark(thread);
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Queues the formatted info line. If the queue is full, we drop it.
+	 */
+	void writeInfoLine() {
+		if (!offer(false)) {
+			line.size = 0;
+		}
+	}
+
+	/**
+	 * Queues the formatted status line. If the writer thread has not taken
+	 * our previous status line yet, we replace it.
+	 */
+	void writeStatusLine() {
+		if (!offer(true)) {
+			line.size = 0;
+		}
+	}
+
+	private boolean offer(boolean status) {
+		ensureCapacity(1);
+		line.bytes[line.size++] = '\n';
+
+		long current = indices.get();
+		int tail = getTail(current);
+		if (status && statusQueued && tail != getHead(current)
+			&& indices.compareAndSet(current, pack(getHead(current), tail - 1))) {
+			// We took back our last status line
+			tail--;
+		} else if (tail - getHead(current) >= CAPACITY - 1) {
+			line.size--;
+			return false;
+		}
+
+		int index = tail & MASK;
+		Line free = lines[index];
+		lines[index] = line;
+		line = free;
+		line.size = 0;
+
+		// The writer thread may have taken lines in the meantime
+		do {
+			current = indices.get();
+		} while (!indices.compareAndSet(current, pack(getHead(current), tail + 1)));
+
+		statusQueued = status;
+		LockSupport.unpark(thread);
+
+		return true;
+	}
+
+	/**
+	 * Waits until the writer thread has written all queued lines. Call this
+	 * before writing to the output stream directly, so the lines stay in
+	 * order. Any thread may call this.
+	 */
+	void flush() {
+		int tail = getTail(indices.get());
+		while (written - tail < 0 && thread.isAlive()) {
+			LockSupport.unpark(thread);
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Writes all queued lines and stops the writer thread.
+	 */
+	void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			currentThread().interrupt();
+		}
+	}
+
+	private void write() {
+		while (true) {
+			if (!poll()) {
+				if (batchSize > 0) {
+					output.write(batch, 0, batchSize);
+					output.flush();
+					batchSize = 0;
+					written = batchEnd;
+				} else if (closed) {
+					// We have checked the queue after seeing the closed flag
+					if (!poll()) {
+						return;
+					}
+				} else {
+					LockSupport.park(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the next queued line into the batch.
+	 *
+	 * @return false if the queue is empty.
+	 */
+	private boolean poll() {
+		long current;
+		int head;
+		do {
+			current = indices.get();
+			head = getHead(current);
+			if (head == getTail(current)) {
+				return false;
+			}
+		} while (!indices.compareAndSet(current, pack(head + 1, getTail(current))));
+
+		// The slot stays ours until we take the next line
+		Line next = lines[head & MASK];
+		if (batchSize + next.size > batch.length) {
+			batch = Arrays.copyOf(batch, Math.max(batch.length * 2, batchSize + next.size));
+		}
+		System.arraycopy(next.bytes, 0, batch, batchSize, next.size);
+		batchSize += next.size;
+		batchEnd = head + 1;
+
+		return true;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Square;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.fluxchess.pulse.java.model.Color.BLACK;
+import static com.fluxchess.pulse.java.model.Color.WHITE;
+import static com.fluxchess.pulse.java.model.Square.a1;
+import static com.fluxchess.pulse.java.model.Square.b2;
+import static com.fluxchess.pulse.java.model.Square.b3;
+import static com.fluxchess.pulse.java.model.Square.bishopDirections;
+import static com.fluxchess.pulse.java.model.Square.c2;
+import static com.fluxchess.pulse.java.model.Square.c3;
+import static com.fluxchess.pulse.java.model.Square.c5;
+import static com.fluxchess.pulse.java.model.Square.d4;
+import static com.fluxchess.pulse.java.model.Square.d5;
+import static com.fluxchess.pulse.java.model.Square.e3;
+import static com.fluxchess.pulse.java.model.Square.e5;
+import static com.fluxchess.pulse.java.model.Square.h8;
+import static com.fluxchess.pulse.java.model.Square.rookDirections;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttacksTest {
+
+	@Test
+	void testNonSlidingAttacks() {
+		assertThat(Attacks.knightAttacks[a1]).isEqualTo(Bitboard.add(b3, Bitboard.add(c2, 0)));
+		assertThat(Bitboard.size(Attacks.knightAttacks[d4])).isEqualTo(8);
+		assertThat(Bitboard.size(Attacks.kingAttacks[h8])).isEqualTo(3);
+		assertThat(Attacks.pawnAttacks[WHITE][a1]).isEqualTo(Bitboard.add(b2, 0));
+		assertThat(Attacks.pawnAttacks[BLACK][d4]).isEqualTo(Bitboard.add(e3, Bitboard.add(c3, 0)));
+		assertThat(Attacks.pawnAttacks[WHITE][d4]).isEqualTo(Bitboard.add(e5, Bitboard.add(c5, 0)));
+	}
+
+	@Test
+	void testSlidingAttacks() {
+		Random random = new Random(0);
+
+		for (int i = 0; i < 1000; i++) {
+			// Sparse and dense occupancies
+			long occupied = random.nextLong() & random.nextLong();
+			if ((i & 1) == 0) {
+				occupied |= random.nextLong();
+			}
+
+			for (int square : Square.values) {
+				assertThat(Attacks.bishopAttacks(square, occupied))
+					.isEqualTo(getAttacks(square, bishopDirections, occupied));
+				assertThat(Attacks.rookAttacks(square, occupied))
+					.isEqualTo(getAttacks(square, rookDirections, occupied));
+			}
+		}
+
+		// The rook on d4 sees the blocker on d5, the rank and d1 to d3
+		assertThat(Bitboard.size(Attacks.rookAttacks(d4, Bitboard.add(d5, 0)))).isEqualTo(11);
+	}
+
+	private static long getAttacks(int square, int[] directions, long occupied) {
+		long attacks = 0;
+
+		for (int direction : directions) {
+			int targetSquare = square + direction;
+
+			while (Square.isValid(targetSquare)) {
+				attacks = Bitboard.add(targetSquare, attacks);
+
+				if ((Bitboard.add(targetSquare, 0) & occupied) != 0) {
+					break;
+				}
+
+				targetSquare += direction;
+			}
+		}
+
+		return attacks;
+	}
+}
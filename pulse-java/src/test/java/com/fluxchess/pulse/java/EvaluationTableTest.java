@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Value;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EvaluationTableTest {
+
+	@Test
+	void testPutAndProbe() {
+		EvaluationTable table = new EvaluationTable(1);
+		long key = 0x123456789ABCDEFL;
+
+		assertThat(table.probe(key)).isEqualTo(Value.NOVALUE);
+
+		table.put(key, -42);
+		assertThat(table.probe(key)).isEqualTo(-42);
+		assertThat(table.probe(key + 1)).isEqualTo(Value.NOVALUE);
+
+		table.clear();
+		assertThat(table.probe(key)).isEqualTo(Value.NOVALUE);
+	}
+
+	@Test
+	void testResize() {
+		EvaluationTable table = new EvaluationTable(1);
+		long key = 0x123456789ABCDEFL;
+
+		table.put(key, 42);
+		table.resize(2);
+		assertThat(table.probe(key)).isEqualTo(Value.NOVALUE);
+
+		table.put(key, 42);
+		assertThat(table.probe(key)).isEqualTo(42);
+
+		assertThatThrownBy(() -> table.resize(EvaluationTable.MAX_SIZE + 1))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void testEvaluate() {
+		Evaluation evaluation = new Evaluation(new EvaluationTable(1));
+		Position position = Notation.toPosition("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1");
+
+		int value = new Evaluation().evaluate(position);
+		assertThat(evaluation.evaluate(position)).isEqualTo(value);
+		assertThat(evaluation.evaluate(position)).isEqualTo(value);
+		assertThat(evaluation.evaluationTableProbes).isEqualTo(2);
+		assertThat(evaluation.evaluationTableHits).isEqualTo(1);
+	}
+}
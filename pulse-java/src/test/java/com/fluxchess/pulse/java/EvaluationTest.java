@@ -6,6 +6,7 @@
  */
 package com.fluxchess.pulse.java;
 
+import com.fluxchess.pulse.java.model.PieceType;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -19,4 +20,31 @@ class EvaluationTest {
 
 		assertThat(evaluation.evaluate(position)).isEqualTo(Evaluation.TEMPO);
 	}
+
+	@Test
+	void testPawnStructure() {
+		Evaluation evaluation = new Evaluation();
+
+		// A passed pawn is worth more than a blocked pawn
+		Position passed = Notation.toPosition("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1");
+		Position blocked = Notation.toPosition("4k3/3p4/8/3P4/8/8/8/4K3 w - - 0 1");
+		assertThat(evaluation.evaluate(passed) - PieceType.PAWN_VALUE).isGreaterThan(evaluation.evaluate(blocked));
+
+		// The evaluation is the same for both colors and does not change if we
+		// hit the pawn table
+		Position mirrored = Notation.toPosition("4k3/8/8/8/3p4/8/8/4K3 b - - 0 1");
+		int value = evaluation.evaluate(passed);
+		assertThat(evaluation.evaluate(mirrored)).isEqualTo(value);
+		assertThat(evaluation.evaluate(passed)).isEqualTo(value);
+	}
+
+	@Test
+	void testMobility() {
+		Evaluation evaluation = new Evaluation();
+
+		// The evaluation of all pieces is the same for both colors
+		Position position = Notation.toPosition("r3k1n1/1b3q2/8/8/8/8/2Q3B1/1N2K2R w - - 0 1");
+		Position mirrored = Notation.toPosition("1n2k2r/2q3b1/8/8/8/8/1B3Q2/R3K1N1 b - - 0 1");
+		assertThat(evaluation.evaluate(mirrored)).isEqualTo(evaluation.evaluate(position));
+	}
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.MoveType;
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.PieceType;
+import org.junit.jupiter.api.Test;
+
+import static com.fluxchess.pulse.java.model.Color.BLACK;
+import static com.fluxchess.pulse.java.model.Color.WHITE;
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
+import static com.fluxchess.pulse.java.model.Square.b8;
+import static com.fluxchess.pulse.java.model.Square.c6;
+import static com.fluxchess.pulse.java.model.Square.e2;
+import static com.fluxchess.pulse.java.model.Square.e4;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryTest {
+
+	private static final int MOVE = Move.valueOf(
+		MoveType.PAWNDOUBLE, e2, e4, Piece.WHITE_PAWN, Piece.NOPIECE, PieceType.NOPIECETYPE);
+	private static final int REPLY = Move.valueOf(
+		MoveType.NORMAL, b8, c6, Piece.BLACK_KNIGHT, Piece.NOPIECE, PieceType.NOPIECETYPE);
+
+	@Test
+	void testUpdate() {
+		History history = new History();
+		assertThat(history.get(WHITE, MOVE)).isEqualTo(0);
+
+		history.update(WHITE, MOVE, 100);
+		assertThat(history.get(WHITE, MOVE)).isEqualTo(100);
+		assertThat(history.get(BLACK, MOVE)).isEqualTo(0);
+
+		history.update(WHITE, MOVE, -300);
+		assertThat(history.get(WHITE, MOVE)).isLessThan(0);
+
+		// The gravity keeps the value within the bounds
+		for (int i = 0; i < 1000; i++) {
+			history.update(WHITE, MOVE, History.MAX_VALUE);
+		}
+		assertThat(history.get(WHITE, MOVE)).isEqualTo(History.MAX_VALUE);
+
+		history.clear();
+		assertThat(history.get(WHITE, MOVE)).isEqualTo(0);
+	}
+
+	@Test
+	void testCounterMove() {
+		History history = new History();
+		assertThat(history.getCounterMove(MOVE)).isEqualTo(NOMOVE);
+		assertThat(history.getCounterMove(NOMOVE)).isEqualTo(NOMOVE);
+
+		history.setCounterMove(MOVE, REPLY);
+		assertThat(history.getCounterMove(MOVE)).isEqualTo(REPLY);
+
+		history.clear();
+		assertThat(history.getCounterMove(MOVE)).isEqualTo(NOMOVE);
+	}
+}
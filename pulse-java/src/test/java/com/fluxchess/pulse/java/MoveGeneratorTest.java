@@ -9,6 +9,9 @@ package com.fluxchess.pulse.java;
 import com.fluxchess.jcpi.models.GenericBoard;
 import com.fluxchess.jcpi.models.GenericMove;
 import com.fluxchess.pulse.java.model.Color;
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.PieceType;
+import com.fluxchess.pulse.java.model.Square;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -16,7 +19,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 
-import static com.fluxchess.pulse.java.MoveList.MoveEntry;
+import static org.assertj.core.api.Assertions.assertThat;
 
 class MoveGeneratorTest {
 
@@ -151,6 +154,7 @@ class MoveGeneratorTest {
 
 	private static final int MAX_DEPTH = 6;
 	private static final MoveGenerator[] moveGenerators = new MoveGenerator[MAX_DEPTH];
+	private static final History history = new History();
 
 	private static final class P {
 
@@ -197,10 +201,10 @@ class MoveGeneratorTest {
 		long totalNodes = 0;
 
 		boolean isCheck = position.isCheck();
-		MoveList<MoveEntry> moves = moveGenerators[ply].getMoves(position, depth, isCheck);
+		MoveList moves = moveGenerators[ply].getMoves(position, depth, isCheck);
 
 		for (int i = 0; i < moves.size; i++) {
-			int move = moves.entries[i].move;
+			int move = moves.moves[i];
 
 			position.makeMove(move);
 			if (!position.isCheck(Color.opposite(position.activeColor))) {
@@ -231,6 +235,162 @@ class MoveGeneratorTest {
 		}
 	}
 
+	/**
+	 * Runs perft with the strictly legal move generation. We count the leaf
+	 * nodes in bulk like Perft does.
+	 */
+	private long miniMaxLegal(int depth, Position position, int ply) {
+		boolean isCheck = position.isCheck();
+		MoveList moves = moveGenerators[ply].getLegalMoves(position, isCheck);
+		if (depth == 1) {
+			return moves.size;
+		}
+
+		long totalNodes = 0;
+		for (int i = 0; i < moves.size; i++) {
+			int move = moves.moves[i];
+
+			position.makeMove(move);
+			assertThat(position.isCheck(Color.opposite(position.activeColor))).isFalse();
+			totalNodes += miniMaxLegal(depth - 1, position, ply + 1);
+			position.undoMove(move);
+		}
+
+		return totalNodes;
+	}
+
+	@Test
+	void testLegalPerft() {
+		for (int i = 0; i < 4; i++) {
+			for (P p : perftPositions) {
+				if (p.perftEntries.length > i) {
+					int depth = p.perftEntries[i].depth;
+					long nodes = p.perftEntries[i].nodes;
+
+					Position position = Notation.toPosition(p.fen);
+
+					assertThat(miniMaxLegal(depth, position, 0)).as(p.fen).isEqualTo(nodes);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs perft with the staged move generation. We feed moves from sibling
+	 * positions as best move, killer moves and countermove, so we also test
+	 * whether invalid or illegal hints are rejected and valid hints are not
+	 * returned twice.
+	 */
+	private long miniMaxStaged(int depth, Position position, int ply, int[] hints) {
+		if (depth <= 0) {
+			return 1;
+		}
+
+		long totalNodes = 0;
+
+		boolean isCheck = position.isCheck();
+		MoveGenerator moveGenerator = moveGenerators[ply];
+		moveGenerator.initMoves(position, depth, isCheck,
+			hints[ply], hints[ply + 1], hints[ply + 2], hints[ply + 3], history);
+		for (int move = moveGenerator.nextMove(); move != Move.NOMOVE; move = moveGenerator.nextMove()) {
+			position.makeMove(move);
+			assertThat(position.isCheck(Color.opposite(position.activeColor))).isFalse();
+			totalNodes += miniMaxStaged(depth - 1, position, ply + 1, hints);
+			position.undoMove(move);
+
+			hints[ply + 3] = hints[ply + 2];
+			hints[ply + 2] = hints[ply + 1];
+			hints[ply + 1] = hints[ply];
+			hints[ply] = move;
+		}
+
+		return totalNodes;
+	}
+
+	@Test
+	void testStagedPerft() {
+		for (int i = 0; i < 3; i++) {
+			for (P p : perftPositions) {
+				if (p.perftEntries.length > i) {
+					int depth = p.perftEntries[i].depth;
+					long nodes = p.perftEntries[i].nodes;
+
+					Position position = Notation.toPosition(p.fen);
+					int[] hints = new int[MAX_DEPTH + 3];
+					Arrays.fill(hints, Move.NOMOVE);
+
+					assertThat(miniMaxStaged(depth, position, 0, hints)).isEqualTo(nodes);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testStagedQuiescentMoves() {
+		for (P p : perftPositions) {
+			Position position = Notation.toPosition(p.fen);
+			boolean isCheck = position.isCheck();
+
+			Collection<Integer> expectedMoves = new HashSet<>();
+			MoveList moves = moveGenerators[0].getLegalMoves(position, 0, isCheck);
+			for (int i = 0; i < moves.size; i++) {
+				expectedMoves.add(moves.moves[i]);
+			}
+
+			Collection<Integer> actualMoves = new HashSet<>();
+			moveGenerators[1].initMoves(position, 0, isCheck, Move.NOMOVE, Move.NOMOVE, Move.NOMOVE, Move.NOMOVE, history);
+			for (int move = moveGenerators[1].nextMove(); move != Move.NOMOVE; move = moveGenerators[1].nextMove()) {
+				assertThat(actualMoves.add(move)).isTrue();
+			}
+
+			assertThat(actualMoves).isEqualTo(expectedMoves);
+		}
+	}
+
+	@Test
+	void testLegalMove() {
+		for (P p : perftPositions) {
+			Position position = Notation.toPosition(p.fen);
+			assertLegalMove(position);
+
+			// The replies give us en passant squares and evasions as well
+			MoveList moves = new MoveGenerator().getLegalMoves(position, position.isCheck());
+			for (int i = 0; i < moves.size; i++) {
+				int move = moves.moves[i];
+
+				position.makeMove(move);
+				assertLegalMove(position);
+				position.undoMove(move);
+			}
+		}
+	}
+
+	/**
+	 * Resolves every combination of squares and promotions and compares it
+	 * with the generated legal moves.
+	 */
+	private void assertLegalMove(Position position) {
+		Collection<Integer> expectedMoves = new HashSet<>();
+		MoveList moves = moveGenerators[0].getLegalMoves(position, position.isCheck());
+		for (int i = 0; i < moves.size; i++) {
+			expectedMoves.add(moves.moves[i]);
+		}
+
+		Collection<Integer> actualMoves = new HashSet<>();
+		for (int originSquare : Square.values) {
+			for (int targetSquare : Square.values) {
+				for (int promotion = PieceType.PAWN; promotion <= PieceType.NOPIECETYPE; promotion++) {
+					int move = moveGenerators[1].getLegalMove(position, originSquare, targetSquare, promotion);
+					if (move != Move.NOMOVE) {
+						assertThat(actualMoves.add(move)).isTrue();
+					}
+				}
+			}
+		}
+
+		assertThat(actualMoves).isEqualTo(expectedMoves);
+	}
+
 	private String findMissingMoves(int depth, Position position, int ply) {
 		StringBuilder message = new StringBuilder();
 
@@ -242,10 +402,10 @@ class MoveGeneratorTest {
 
 		// Get actual moves
 		boolean isCheck = position.isCheck();
-		MoveList<MoveEntry> moves = moveGenerators[ply].getLegalMoves(position, depth, isCheck);
+		MoveList moves = moveGenerators[ply].getLegalMoves(position, depth, isCheck);
 		Collection<GenericMove> actualMoves = new HashSet<>();
 		for (int i = 0; i < moves.size; i++) {
-			actualMoves.add(Pulse.fromMove(moves.entries[i].move));
+			actualMoves.add(Pulse.fromMove(moves.moves[i]));
 		}
 
 		// Compare expected and actual moves
@@ -261,7 +421,7 @@ class MoveGeneratorTest {
 			}
 
 			for (int i = 0; i < moves.size; i++) {
-				int move = moves.entries[i].move;
+				int move = moves.moves[i];
 
 				position.makeMove(move);
 				message.append(findMissingMoves(depth - 1, position, ply + 1));
@@ -14,11 +14,58 @@ class MoveListTest {
 
 	@Test
 	void test() {
-		MoveList<MoveList.MoveEntry> moveList = new MoveList<>(MoveList.MoveEntry.class);
+		MoveList moveList = new MoveList();
 
 		assertThat(moveList.size).isEqualTo(0);
 
-		moveList.entries[moveList.size++].move = 1;
+		moveList.moves[moveList.size++] = 1;
 		assertThat(moveList.size).isEqualTo(1);
 	}
+
+	@Test
+	void testSort() {
+		MoveList moveList = new MoveList();
+		int[] values = {10, 30, 20, 30};
+		for (int value : values) {
+			moveList.moves[moveList.size] = moveList.size + 1;
+			moveList.values[moveList.size++] = value;
+		}
+
+		moveList.sort();
+
+		assertThat(moveList.moves).startsWith(2, 4, 3, 1);
+		assertThat(moveList.values).startsWith(30, 30, 20, 10);
+	}
+
+	@Test
+	void testSelectNext() {
+		MoveList moveList = new MoveList();
+		int[] values = {10, 30, 20, 30};
+		for (int value : values) {
+			moveList.moves[moveList.size] = moveList.size + 1;
+			moveList.values[moveList.size++] = value;
+		}
+
+		moveList.selectNext(0);
+		assertThat(moveList.moves).startsWith(2, 1, 3, 4);
+		moveList.selectNext(1);
+		assertThat(moveList.moves).startsWith(2, 4, 1, 3);
+		assertThat(moveList.values).startsWith(30, 30, 10, 20);
+	}
+
+	@Test
+	void testRootListSort() {
+		MoveList.RootList rootList = new MoveList.RootList();
+		int[] values = {10, 30, 20};
+		for (int value : values) {
+			rootList.entries[rootList.size].move = rootList.size + 1;
+			rootList.entries[rootList.size++].value = value;
+		}
+
+		rootList.sort();
+
+		assertThat(rootList.entries[0].move).isEqualTo(2);
+		assertThat(rootList.entries[1].move).isEqualTo(3);
+		assertThat(rootList.entries[2].move).isEqualTo(1);
+	}
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.fluxchess.pulse.java.model.Color.WHITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NetworkTest {
+
+	private static final int HIDDEN_SIZE = 8;
+
+	private static short[] newWeights(Random random, int size) {
+		short[] weights = new short[size];
+		for (int i = 0; i < size; i++) {
+			weights[i] = (short) (random.nextInt(129) - 64);
+		}
+
+		return weights;
+	}
+
+	private static Network newNetwork() {
+		Random random = new Random(42);
+		return new Network(
+			newWeights(random, Network.INPUT_SIZE * HIDDEN_SIZE),
+			newWeights(random, HIDDEN_SIZE),
+			newWeights(random, 2 * HIDDEN_SIZE),
+			(short) 10);
+	}
+
+	@Test
+	void testLoad(@TempDir Path directory) throws IOException {
+		Random random = new Random(42);
+		short[] weights = newWeights(random, (Network.INPUT_SIZE + 3) * HIDDEN_SIZE + 1);
+		ByteBuffer buffer = ByteBuffer.allocate(weights.length * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asShortBuffer().put(weights);
+
+		Path path = directory.resolve("network.bin");
+		Files.write(path, buffer.array());
+		assertThat(Network.load(path).hiddenSize).isEqualTo(HIDDEN_SIZE);
+
+		Files.write(path, new byte[]{1, 2, 3});
+		assertThatThrownBy(() -> Network.load(path)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void testIncrementalUpdate() {
+		Network network = newNetwork();
+		Position position = Notation.toPosition("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		position.setNetwork(network);
+		short[][] accumulators = network.newAccumulators();
+
+		MoveGenerator moveGenerator = new MoveGenerator();
+		MoveList moves = moveGenerator.getLegalMoves(position, 1, position.isCheck());
+		for (int i = 0; i < moves.size; i++) {
+			position.makeMove(moves.moves[i]);
+			network.refresh(position, accumulators);
+			for (int color : Color.values) {
+				assertThat(position.accumulators[color]).isEqualTo(accumulators[color]);
+			}
+			position.undoMove(moves.moves[i]);
+		}
+
+		network.refresh(position, accumulators);
+		assertThat(position.accumulators[WHITE]).isEqualTo(accumulators[WHITE]);
+	}
+
+	@Test
+	void testEvaluate() {
+		Evaluation evaluation = new Evaluation();
+
+		// Both colors see the same position
+		Position position = Notation.toPosition("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1");
+		Position mirrored = Notation.toPosition("4k3/8/8/8/3p4/8/8/4K3 b - - 0 1");
+		position.setNetwork(newNetwork());
+		mirrored.setNetwork(newNetwork());
+		assertThat(evaluation.evaluate(mirrored)).isEqualTo(evaluation.evaluate(position));
+
+		// A copy keeps the network
+		assertThat(evaluation.evaluate(new Position(position))).isEqualTo(evaluation.evaluate(position));
+	}
+
+	@Test
+	void testKernels() {
+		NetworkKernel vectorKernel = NetworkKernel.newVectorKernel();
+		assumeTrue(vectorKernel != null, "The Vector API is not available");
+		NetworkKernel scalarKernel = new ScalarNetworkKernel();
+
+		// We check sizes with and without a scalar tail and extreme values,
+		// which overflow a short and would overflow an int sum
+		Random random = new Random(42);
+		for (int size : new int[]{1, 8, 67, 256, 2048}) {
+			short[] weights = new short[size + 3];
+			short[] accumulator = new short[size];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = (short) random.nextInt();
+			}
+			for (int i = 0; i < size; i++) {
+				accumulator[i] = (short) (random.nextInt(2 * Network.QA) - Network.QA / 2);
+			}
+
+			short[] expected = accumulator.clone();
+			scalarKernel.add(expected, weights, 3);
+			vectorKernel.add(accumulator, weights, 3);
+			assertThat(accumulator).isEqualTo(expected);
+
+			scalarKernel.subtract(expected, weights, 1);
+			vectorKernel.subtract(accumulator, weights, 1);
+			assertThat(accumulator).isEqualTo(expected);
+
+			assertThat(vectorKernel.dot(accumulator, weights, 2)).isEqualTo(scalarKernel.dot(accumulator, weights, 2));
+
+			Arrays.fill(accumulator, Short.MAX_VALUE);
+			Arrays.fill(weights, Short.MIN_VALUE);
+			assertThat(vectorKernel.dot(accumulator, weights, 0)).isEqualTo((long) size * Network.QA * Short.MIN_VALUE);
+		}
+	}
+}
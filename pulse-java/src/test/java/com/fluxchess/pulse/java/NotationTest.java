@@ -7,6 +7,7 @@
 package com.fluxchess.pulse.java;
 
 import com.fluxchess.pulse.java.model.File;
+import com.fluxchess.pulse.java.model.Move;
 import com.fluxchess.pulse.java.model.Piece;
 import com.fluxchess.pulse.java.model.PieceType;
 import com.fluxchess.pulse.java.model.Square;
@@ -19,6 +20,8 @@ import static com.fluxchess.pulse.java.model.Castling.WHITE_KINGSIDE;
 import static com.fluxchess.pulse.java.model.Castling.WHITE_QUEENSIDE;
 import static com.fluxchess.pulse.java.model.Color.BLACK;
 import static com.fluxchess.pulse.java.model.Color.WHITE;
+import static com.fluxchess.pulse.java.model.MoveType.PAWNDOUBLE;
+import static com.fluxchess.pulse.java.model.MoveType.PAWNPROMOTION;
 import static com.fluxchess.pulse.java.model.Rank.r2;
 import static com.fluxchess.pulse.java.model.Rank.r7;
 import static com.fluxchess.pulse.java.model.Square.NOSQUARE;
@@ -29,8 +32,11 @@ import static com.fluxchess.pulse.java.model.Square.b8;
 import static com.fluxchess.pulse.java.model.Square.c1;
 import static com.fluxchess.pulse.java.model.Square.c8;
 import static com.fluxchess.pulse.java.model.Square.d1;
+import static com.fluxchess.pulse.java.model.Square.d6;
 import static com.fluxchess.pulse.java.model.Square.d8;
 import static com.fluxchess.pulse.java.model.Square.e1;
+import static com.fluxchess.pulse.java.model.Square.e2;
+import static com.fluxchess.pulse.java.model.Square.e4;
 import static com.fluxchess.pulse.java.model.Square.e8;
 import static com.fluxchess.pulse.java.model.Square.f1;
 import static com.fluxchess.pulse.java.model.Square.f8;
@@ -39,6 +45,7 @@ import static com.fluxchess.pulse.java.model.Square.g8;
 import static com.fluxchess.pulse.java.model.Square.h1;
 import static com.fluxchess.pulse.java.model.Square.h8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class NotationTest {
 
@@ -109,4 +116,49 @@ class NotationTest {
 		// Test full move number
 		assertThat(position.getFullmoveNumber()).isEqualTo(1);
 	}
+
+	@Test
+	void testFen() {
+		// The clocks are optional
+		Position position = Notation.toPosition("4k2r/8/8/3pP3/8/8/8/4K3 w Kk d6");
+		assertThat(position.enPassantSquare).isEqualTo(d6);
+		assertThat(position.halfmoveClock).isEqualTo(0);
+		assertThat(position.getFullmoveNumber()).isEqualTo(1);
+
+		// We ignore castling rights without the rook
+		assertThat(position.castlingRights).isEqualTo(BLACK_KINGSIDE);
+
+		assertThatThrownBy(() -> Notation.toPosition("8/8/8/8/8/8/8/8 w - - 0 1"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toPosition("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toPosition("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toPosition("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toPosition("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1"))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void testMove() {
+		MoveGenerator moveGenerator = new MoveGenerator();
+		Position position = Notation.toPosition("4k3/1P6/8/8/8/8/4P3/4K3 w - - 0 1");
+
+		int move = Notation.toMove(position, "e2e4", moveGenerator);
+		assertThat(Move.getType(move)).isEqualTo(PAWNDOUBLE);
+		assertThat(Move.getOriginSquare(move)).isEqualTo(e2);
+		assertThat(Move.getTargetSquare(move)).isEqualTo(e4);
+
+		move = Notation.toMove(position, "b7b8n", moveGenerator);
+		assertThat(Move.getType(move)).isEqualTo(PAWNPROMOTION);
+		assertThat(Move.getPromotion(move)).isEqualTo(PieceType.KNIGHT);
+
+		assertThatThrownBy(() -> Notation.toMove(position, "e2e5", moveGenerator))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toMove(position, "b7b8", moveGenerator))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Notation.toMove(position, "e2", moveGenerator))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
 }
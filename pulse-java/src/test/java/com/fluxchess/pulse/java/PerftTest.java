@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerftTest {
+
+	@Test
+	void testParallelMiniMax() {
+		Position position = Notation.toPosition(Notation.STANDARDPOSITION);
+
+		assertThat(Perft.miniMax(position, 4, 1, null)).isEqualTo(197281);
+		assertThat(Perft.miniMax(position, 4, 4, null)).isEqualTo(197281);
+		assertThat(Notation.fromPosition(position)).isEqualTo(Notation.STANDARDPOSITION);
+
+		position = Notation.toPosition("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+		assertThat(Perft.miniMax(position, 3, 1, null)).isEqualTo(97862);
+		assertThat(Perft.miniMax(position, 3, 3, null)).isEqualTo(97862);
+		assertThat(Perft.miniMax(position, 1, 3, null)).isEqualTo(48);
+	}
+
+	@Test
+	void testHashedMiniMax() {
+		Position position = Notation.toPosition("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		PerftTable table = new PerftTable(PerftTable.MIN_SIZE);
+
+		assertThat(Perft.miniMax(position, 3, 1, table)).isEqualTo(97862);
+		assertThat(Perft.miniMax(position, 3, 3, table)).isEqualTo(97862);
+		assertThat(table.probe(position.zobristKey, 3)).isEqualTo(97862);
+		assertThat(table.probe(position.zobristKey, 2)).isEqualTo(PerftTable.NOENTRY);
+	}
+}
@@ -22,6 +22,7 @@ import static com.fluxchess.pulse.java.model.MoveType.NORMAL;
 import static com.fluxchess.pulse.java.model.MoveType.PAWNDOUBLE;
 import static com.fluxchess.pulse.java.model.MoveType.PAWNPROMOTION;
 import static com.fluxchess.pulse.java.model.Square.NOSQUARE;
+import static com.fluxchess.pulse.java.model.Square.a1;
 import static com.fluxchess.pulse.java.model.Square.a2;
 import static com.fluxchess.pulse.java.model.Square.a3;
 import static com.fluxchess.pulse.java.model.Square.a4;
@@ -34,12 +35,17 @@ import static com.fluxchess.pulse.java.model.Square.b8;
 import static com.fluxchess.pulse.java.model.Square.c1;
 import static com.fluxchess.pulse.java.model.Square.c3;
 import static com.fluxchess.pulse.java.model.Square.c6;
+import static com.fluxchess.pulse.java.model.Square.d2;
 import static com.fluxchess.pulse.java.model.Square.d3;
 import static com.fluxchess.pulse.java.model.Square.d4;
+import static com.fluxchess.pulse.java.model.Square.d5;
 import static com.fluxchess.pulse.java.model.Square.e1;
 import static com.fluxchess.pulse.java.model.Square.e4;
+import static com.fluxchess.pulse.java.model.Square.e5;
 import static com.fluxchess.pulse.java.model.Square.f3;
 import static com.fluxchess.pulse.java.model.Square.g1;
+import static com.fluxchess.pulse.java.model.Square.h1;
+import static com.fluxchess.pulse.java.model.Square.h8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class PositionTest {
@@ -196,6 +202,96 @@ class PositionTest {
 		assertThat(position.zobristKey).isEqualTo(zobristKey);
 	}
 
+	@Test
+	void testNullMove() {
+		Position position = Notation.toPosition("5k2/8/8/8/3Pp3/8/8/3K4 b - d3 3 1");
+		long zobristKey = position.zobristKey;
+
+		position.makeNullMove();
+
+		assertThat(position.activeColor).isEqualTo(WHITE);
+		assertThat(position.enPassantSquare).isEqualTo(NOSQUARE);
+		assertThat(position.zobristKey).isEqualTo(Notation.toPosition("5k2/8/8/8/3Pp3/8/8/3K4 w - - 0 2").zobristKey);
+
+		position.undoNullMove();
+
+		assertThat(Notation.fromPosition(position)).isEqualTo("5k2/8/8/8/3Pp3/8/8/3K4 b - d3 3 1");
+		assertThat(position.zobristKey).isEqualTo(zobristKey);
+	}
+
+	@Test
+	void testPawnZobristKey() {
+		Position position = Notation.toPosition(Notation.STANDARDPOSITION);
+		long pawnZobristKey = position.pawnZobristKey;
+
+		// Only pawn moves change the pawn zobrist key
+		int move = Move.valueOf(NORMAL, b1, c3, Piece.WHITE_KNIGHT, Piece.NOPIECE, PieceType.NOPIECETYPE);
+		position.makeMove(move);
+		assertThat(position.pawnZobristKey).isEqualTo(pawnZobristKey);
+		position.undoMove(move);
+
+		move = Move.valueOf(PAWNDOUBLE, a2, a4, Piece.WHITE_PAWN, Piece.NOPIECE, PieceType.NOPIECETYPE);
+		position.makeMove(move);
+		assertThat(position.pawnZobristKey).isEqualTo(
+			Notation.toPosition("rnbqkbnr/pppppppp/8/8/P7/8/1PPPPPPP/RNBQKBNR b KQkq a3 0 1").pawnZobristKey);
+		position.undoMove(move);
+
+		assertThat(position.pawnZobristKey).isEqualTo(pawnZobristKey);
+	}
+
+	@Test
+	void testPieceSquareValues() {
+		Position position = Notation.toPosition("8/P5k1/8/8/2K5/8/8/8 w - - 0 1");
+		Position expected = Notation.toPosition("Q7/6k1/8/8/2K5/8/8/8 b - - 0 1");
+
+		int move = Move.valueOf(PAWNPROMOTION, a7, a8, Piece.WHITE_PAWN, Piece.NOPIECE, PieceType.QUEEN);
+		position.makeMove(move);
+
+		assertThat(position.scores).isEqualTo(expected.scores);
+		assertThat(position.phase).isEqualTo(PieceSquareTables.phaseWeights[PieceType.QUEEN]);
+
+		position.undoMove(move);
+		expected = Notation.toPosition("8/P5k1/8/8/2K5/8/8/8 w - - 0 1");
+
+		assertThat(position.scores).isEqualTo(expected.scores);
+		assertThat(position.phase).isEqualTo(0);
+
+		// Both sides have the same values in the standard position
+		position = Notation.toPosition(Notation.STANDARDPOSITION);
+		assertThat(position.scores[WHITE]).isEqualTo(position.scores[BLACK]);
+		assertThat(position.phase).isEqualTo(Score.MAX_PHASE);
+	}
+
+	@Test
+	void testHasNonPawnMaterial() {
+		Position position = Notation.toPosition("8/4k3/8/2B5/8/8/2K1P3/8 b - - 0 1");
+		assertThat(position.hasNonPawnMaterial(WHITE)).isEqualTo(true);
+		assertThat(position.hasNonPawnMaterial(BLACK)).isEqualTo(false);
+	}
+
+	@Test
+	void testSee() {
+		// The pawn is not defended
+		Position position = Notation.toPosition("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1");
+		int move = Move.valueOf(NORMAL, e1, e5, Piece.WHITE_ROOK, Piece.BLACK_PAWN, PieceType.NOPIECETYPE);
+		assertThat(position.see(move)).isEqualTo(PieceType.PAWN_VALUE);
+
+		// The queen and the rook behind our rook join the exchange
+		position = Notation.toPosition("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1");
+		move = Move.valueOf(NORMAL, d3, e5, Piece.WHITE_KNIGHT, Piece.BLACK_PAWN, PieceType.NOPIECETYPE);
+		assertThat(position.see(move)).isEqualTo(PieceType.PAWN_VALUE - PieceType.KNIGHT_VALUE);
+
+		// The queen takes a pawn defended by a pawn
+		position = Notation.toPosition("4k3/8/2p5/3p4/4Q3/8/8/4K3 w - - 0 1");
+		move = Move.valueOf(NORMAL, e4, d5, Piece.WHITE_QUEEN, Piece.BLACK_PAWN, PieceType.NOPIECETYPE);
+		assertThat(position.see(move)).isEqualTo(PieceType.PAWN_VALUE - PieceType.QUEEN_VALUE);
+
+		// The king cannot recapture a defended piece
+		position = Notation.toPosition("8/8/3k4/3p4/8/8/3R4/3RK3 w - - 0 1");
+		move = Move.valueOf(NORMAL, d2, d5, Piece.WHITE_ROOK, Piece.BLACK_PAWN, PieceType.NOPIECETYPE);
+		assertThat(position.see(move)).isEqualTo(PieceType.PAWN_VALUE);
+	}
+
 	@Test
 	void testCastlingMove() {
 		Position position = Notation.toPosition("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
@@ -224,4 +320,24 @@ class PositionTest {
 		assertThat(Notation.fromPosition(position)).isEqualTo("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
 		assertThat(position.zobristKey).isEqualTo(zobristKey);
 	}
+
+	@Test
+	void testCastlingRightsZobristKey() {
+		Position position = Notation.toPosition("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+
+		// Capturing the rook removes castling rights of both colors
+		int move = Move.valueOf(NORMAL, h1, h8, Piece.WHITE_ROOK, Piece.BLACK_ROOK, PieceType.NOPIECETYPE);
+		position.makeMove(move);
+
+		assertThat(position.zobristKey).isEqualTo(Notation.toPosition("r3k2R/8/8/8/8/8/8/R3K3 b Qq - 0 1").zobristKey);
+	}
+
+	@Test
+	void testCheckersAndPinned() {
+		// The knight on d2 is pinned by the bishop, the rook gives check
+		Position position = Notation.toPosition("4k3/8/8/8/8/4b3/3N4/r1K5 w - - 0 1");
+
+		assertThat(position.getCheckers()).isEqualTo(Bitboard.add(a1, 0));
+		assertThat(position.getPinned()).isEqualTo(Bitboard.add(d2, 0));
+	}
 }
@@ -32,7 +32,12 @@ import com.fluxchess.jcpi.protocols.IProtocolHandler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
@@ -59,6 +64,7 @@ class PulseTest {
 		commands.add(new EngineSetOptionCommand(
 			ponderOption.name,
 			ponderOption.defaultValue));
+		commands.add(new EngineSetOptionCommand("Hash", "1"));
 		commands.add(new EngineDebugCommand(false, true));
 		commands.add(new EngineDebugCommand(true, false));
 		commands.add(new EngineReadyRequestCommand("test"));
@@ -278,6 +284,99 @@ class PulseTest {
 		new Pulse(new ProtocolHandler()).run();
 	}
 
+	@Test
+	void testIncrementalPosition() throws IllegalNotationException {
+		Pulse pulse = new Pulse(new ProtocolHandler());
+		GenericBoard board = new GenericBoard(GenericBoard.STANDARDSETUP);
+		GenericMove c2c4 = new GenericMove(GenericPosition.c2, GenericPosition.c4);
+		GenericMove e7e5 = new GenericMove(GenericPosition.e7, GenericPosition.e5);
+		GenericMove b1c3 = new GenericMove(GenericPosition.b1, GenericPosition.c3);
+		GenericMove b8c6 = new GenericMove(GenericPosition.b8, GenericPosition.c6);
+
+		pulse.receive(new EngineAnalyzeCommand(board, singletonList(c2c4)));
+		Position position = pulse.getCurrentPosition();
+
+		// We make only the new moves on the current position
+		pulse.receive(new EngineAnalyzeCommand(board, asList(c2c4, e7e5, b1c3)));
+		assertThat(pulse.getCurrentPosition()).isSameAs(position);
+		assertPosition(pulse.getCurrentPosition(), board, asList(c2c4, e7e5, b1c3));
+
+		pulse.receive(new EngineAnalyzeCommand(board, asList(c2c4, e7e5, b1c3, b8c6)));
+		assertThat(pulse.getCurrentPosition()).isSameAs(position);
+		assertPosition(pulse.getCurrentPosition(), board, asList(c2c4, e7e5, b1c3, b8c6));
+	}
+
+	@Test
+	void testNewPosition() throws IllegalNotationException {
+		Pulse pulse = new Pulse(new ProtocolHandler());
+		GenericBoard board = new GenericBoard(GenericBoard.STANDARDSETUP);
+		GenericMove c2c4 = new GenericMove(GenericPosition.c2, GenericPosition.c4);
+		GenericMove d2d4 = new GenericMove(GenericPosition.d2, GenericPosition.d4);
+		GenericMove e7e5 = new GenericMove(GenericPosition.e7, GenericPosition.e5);
+		GenericMove b1c3 = new GenericMove(GenericPosition.b1, GenericPosition.c3);
+		GenericMove b8c6 = new GenericMove(GenericPosition.b8, GenericPosition.c6);
+		GenericMove g1f3 = new GenericMove(GenericPosition.g1, GenericPosition.f3);
+
+		pulse.receive(new EngineAnalyzeCommand(board, singletonList(c2c4)));
+
+		// We set up the position again if there are too many new moves
+		Position position = pulse.getCurrentPosition();
+		pulse.receive(new EngineAnalyzeCommand(board, asList(c2c4, e7e5, b1c3, b8c6)));
+		assertThat(pulse.getCurrentPosition()).isNotSameAs(position);
+		assertPosition(pulse.getCurrentPosition(), board, asList(c2c4, e7e5, b1c3, b8c6));
+
+		// ... if the previous moves differ
+		position = pulse.getCurrentPosition();
+		pulse.receive(new EngineAnalyzeCommand(board, asList(d2d4, e7e5, b1c3, b8c6, g1f3)));
+		assertThat(pulse.getCurrentPosition()).isNotSameAs(position);
+		assertPosition(pulse.getCurrentPosition(), board, asList(d2d4, e7e5, b1c3, b8c6, g1f3));
+
+		// ... and if the board differs
+		GenericBoard newBoard = new GenericBoard("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1");
+		GenericMove e5d4 = new GenericMove(GenericPosition.e5, GenericPosition.d4);
+		position = pulse.getCurrentPosition();
+		pulse.receive(new EngineAnalyzeCommand(newBoard, asList(d2d4, e7e5, b1c3, b8c6, g1f3, e5d4)));
+		assertThat(pulse.getCurrentPosition()).isNotSameAs(position);
+		assertPosition(pulse.getCurrentPosition(), newBoard, asList(d2d4, e7e5, b1c3, b8c6, g1f3, e5d4));
+	}
+
+	private static void assertPosition(Position position, GenericBoard board, List<GenericMove> moves) {
+		MoveGenerator moveGenerator = new MoveGenerator();
+		Position expected = Notation.toPosition(board.toString());
+		for (GenericMove move : moves) {
+			expected.makeMove(Notation.toMove(expected, move.toString(), moveGenerator));
+		}
+
+		assertThat(Notation.fromPosition(position)).isEqualTo(Notation.fromPosition(expected));
+		assertThat(position.zobristKey).isEqualTo(expected.zobristKey);
+	}
+
+	@Test
+	void testOutputOrder() {
+		// We slow down every write, so the writer thread is still busy with the
+		// search output when we answer the ready request
+		ByteArrayOutputStream output = new ByteArrayOutputStream() {
+			@Override
+			public synchronized void write(byte[] bytes, int offset, int length) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.write(bytes, offset, length);
+			}
+		};
+		BufferedReader input = new BufferedReader(new StringReader(
+			"uci\nposition startpos\ngo infinite\nstop\nisready\nquit\n"));
+
+		new Pulse(input, new PrintStream(output)).run();
+
+		// The best move of the stopped search comes before the ready answer
+		String[] lines = output.toString().split("\n");
+		assertThat(lines[lines.length - 2]).startsWith("bestmove");
+		assertThat(lines[lines.length - 1]).isEqualTo("readyok");
+	}
+
 	private class ProtocolHandler implements IProtocolHandler {
 
 		@Override
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScoreTest {
+
+	@Test
+	void testValueOf() {
+		int score = Score.valueOf(-25, 40);
+		assertThat(Score.getMidgame(score)).isEqualTo(-25);
+		assertThat(Score.getEndgame(score)).isEqualTo(40);
+
+		// We can add, subtract and multiply scores as a whole
+		score = Score.valueOf(10, -20) - score * 2;
+		assertThat(Score.getMidgame(score)).isEqualTo(60);
+		assertThat(Score.getEndgame(score)).isEqualTo(-100);
+	}
+
+	@Test
+	void testInterpolate() {
+		int score = Score.valueOf(100, -20);
+		assertThat(Score.interpolate(score, Score.MAX_PHASE)).isEqualTo(100);
+		assertThat(Score.interpolate(score, 0)).isEqualTo(-20);
+		assertThat(Score.interpolate(score, Score.MAX_PHASE / 2)).isEqualTo(40);
+	}
+}
@@ -10,6 +10,8 @@ import com.fluxchess.pulse.java.model.Move;
 import com.fluxchess.pulse.java.model.Value;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 import static com.fluxchess.pulse.java.model.Move.NOMOVE;
@@ -126,6 +128,45 @@ class SearchTest {
 		assertThat(mate[0]).isEqualTo(1);
 	}
 
+	@Test
+	void testThreads() throws InterruptedException {
+		RecordingProtocol protocol = new RecordingProtocol();
+		Search search = new Search(protocol);
+		search.setThreads(Search.MAX_THREADS);
+		search.newDepthSearch(Notation.toPosition("8/8/1R1P4/2B2p2/k1K2P2/4P3/8/8 w - - 3 101"), 4);
+		search.start();
+		protocol.awaitBestMove();
+
+		assertThat(Move.getOriginSquare(protocol.bestMove)).isEqualTo(b6);
+		assertThat(Move.getTargetSquare(protocol.bestMove)).isEqualTo(a6);
+
+		search.quit();
+
+		// The helpers search on top of the main worker, so we count more nodes
+		// than with the main worker alone
+		long nodes = countNodes(1);
+		assertThat(nodes).isGreaterThan(0L);
+		if (Search.MAX_THREADS > 1) {
+			assertThat(countNodes(Search.MAX_THREADS)).isGreaterThan(nodes);
+		}
+	}
+
+	/**
+	 * Searches the standard position and returns the nodes of the final
+	 * status.
+	 */
+	private static long countNodes(int threads) throws InterruptedException {
+		RecordingProtocol protocol = new RecordingProtocol();
+		Search search = new Search(protocol);
+		search.setThreads(threads);
+		search.newDepthSearch(Notation.toPosition(Notation.STANDARDPOSITION), 5);
+		search.start();
+		protocol.awaitBestMove();
+		search.quit();
+
+		return protocol.nodes;
+	}
+
 	@Test
 	void testStalemate() throws InterruptedException {
 		final int[] currentBestMove = {NOMOVE};
@@ -259,4 +300,114 @@ class SearchTest {
 		assertThat(Move.getOriginSquare(currentBestMove[0])).isEqualTo(a8);
 		assertThat(Move.getTargetSquare(currentBestMove[0])).isEqualTo(a7);
 	}
+
+	@Test
+	void testReuse() throws InterruptedException {
+		RecordingProtocol protocol = new RecordingProtocol();
+		Search search = new Search(protocol);
+		Position position = Notation.toPosition("8/8/1R1P4/2B2p2/k1K2P2/4P3/8/8 w - - 3 101");
+		search.newDepthSearch(position, 2);
+		search.start();
+		protocol.awaitBestMove();
+		search.stop();
+		int bestMove = protocol.bestMove;
+
+		// Searching the same position again starts with our last root moves and
+		// the transposition table entries of the last search
+		protocol.clear();
+		search.newDepthSearch(position, 2);
+		search.start();
+		protocol.awaitBestMove();
+		search.stop();
+
+		// We search the reused best move first, so we report it first
+		assertThat(protocol.moves.get(0)).isEqualTo(bestMove);
+		assertThat(Move.getOriginSquare(protocol.bestMove)).isEqualTo(b6);
+		assertThat(Move.getTargetSquare(protocol.bestMove)).isEqualTo(a6);
+		assertThat(protocol.messages).anyMatch(message -> message.endsWith("best move confirmed"));
+		assertThat(protocol.messages).anyMatch(message -> message.startsWith("Transposition table hits of earlier searches")
+			&& !message.contains(": 0 of"));
+	}
+
+	@Test
+	void testReusePrincipalVariation() throws InterruptedException {
+		RecordingProtocol protocol = new RecordingProtocol();
+		Search search = new Search(protocol);
+		Position position = Notation.toPosition(Notation.STANDARDPOSITION);
+		search.newDepthSearch(position, 4);
+		search.start();
+		protocol.awaitBestMove();
+		search.stop();
+		assertThat(protocol.ponderMove).isNotEqualTo(NOMOVE);
+
+		// After the best move we reuse only the expected reply
+		Position nextPosition = new Position(position);
+		nextPosition.makeMove(protocol.bestMove);
+		int ponderMove = protocol.ponderMove;
+		protocol.clear();
+		search.newDepthSearch(nextPosition, 2);
+		search.start();
+		protocol.awaitBestMove();
+		search.stop();
+
+		assertThat(protocol.moves.get(0)).isEqualTo(ponderMove);
+		assertThat(protocol.messages).anyMatch(message -> message.startsWith("Reused 1 root moves"));
+	}
+
+	/**
+	 * This protocol remembers the last best move, the moves of all reported
+	 * principal variations, the nodes of the final status and all debug
+	 * messages. It releases a permit for
+	 * every best move.
+	 */
+	private static final class RecordingProtocol implements Protocol {
+		private final Semaphore semaphore = new Semaphore(0);
+		private final List<Integer> moves = new ArrayList<>();
+		private final List<String> messages = new ArrayList<>();
+		private int bestMove = NOMOVE;
+		private int ponderMove = NOMOVE;
+		private long nodes;
+
+		@Override
+		public void sendBestMove(int bestMove, int ponderMove) {
+			this.bestMove = bestMove;
+			this.ponderMove = ponderMove;
+
+			semaphore.release();
+		}
+
+		@Override
+		public void sendStatus(int currentDepth, int currentMaxDepth, long totalNodes, int currentMove, int currentMoveNumber) {
+		}
+
+		@Override
+		public void sendStatus(boolean force, int currentDepth, int currentMaxDepth, long totalNodes, int currentMove, int currentMoveNumber) {
+			if (force) {
+				nodes = totalNodes;
+			}
+		}
+
+		@Override
+		public void sendMove(MoveList.RootEntry entry, int currentDepth, int currentMaxDepth, long totalNodes) {
+			moves.add(entry.move);
+		}
+
+		@Override
+		public void sendInfo(String message) {
+		}
+
+		@Override
+		public void sendDebug(String message) {
+			messages.add(message);
+		}
+
+		private void clear() {
+			moves.clear();
+			messages.clear();
+		}
+
+		private void awaitBestMove() throws InterruptedException {
+			assertThat(semaphore.tryAcquire(10000, MILLISECONDS)).isEqualTo(true);
+		}
+	}
 }
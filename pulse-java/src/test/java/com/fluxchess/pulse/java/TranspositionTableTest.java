@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.MoveType;
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.PieceType;
+import com.fluxchess.pulse.java.model.Value;
+import org.junit.jupiter.api.Test;
+
+import static com.fluxchess.pulse.java.model.Move.NOMOVE;
+import static com.fluxchess.pulse.java.model.Square.e2;
+import static com.fluxchess.pulse.java.model.Square.e4;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TranspositionTableTest {
+
+	private static final int MOVE = Move.valueOf(
+		MoveType.PAWNDOUBLE, e2, e4, Piece.WHITE_PAWN, Piece.NOPIECE, PieceType.NOPIECETYPE);
+
+	@Test
+	void testPutAndProbe() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x123456789ABCDEFL;
+
+		assertThat(table.probe(key)).isEqualTo(TranspositionTable.NOENTRY);
+
+		table.put(key, 5, -42, TranspositionTable.EXACT, MOVE, 3);
+		long entry = table.probe(key);
+		assertThat(entry).isNotEqualTo(TranspositionTable.NOENTRY);
+		assertThat(TranspositionTable.getDepth(entry)).isEqualTo(5);
+		assertThat(TranspositionTable.getValue(entry, 3)).isEqualTo(-42);
+		assertThat(TranspositionTable.getBound(entry)).isEqualTo(TranspositionTable.EXACT);
+		assertThat(TranspositionTable.getMove(entry)).isEqualTo(MOVE);
+
+		// Keep the old move if we don't have a new one
+		table.put(key, 6, 10, TranspositionTable.UPPER, NOMOVE, 3);
+		entry = table.probe(key);
+		assertThat(TranspositionTable.getBound(entry)).isEqualTo(TranspositionTable.UPPER);
+		assertThat(TranspositionTable.getMove(entry)).isEqualTo(MOVE);
+
+		table.clear();
+		assertThat(table.probe(key)).isEqualTo(TranspositionTable.NOENTRY);
+	}
+
+	@Test
+	void testCheckmateValue() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 42;
+
+		// A mate found at ply 5 is a mate in 3 plies from ply 2
+		table.put(key, 1, Value.CHECKMATE - 5, TranspositionTable.EXACT, MOVE, 2);
+		assertThat(TranspositionTable.getValue(table.probe(key), 4)).isEqualTo(Value.CHECKMATE - 7);
+
+		table.put(key, 1, -Value.CHECKMATE + 5, TranspositionTable.EXACT, MOVE, 2);
+		assertThat(TranspositionTable.getValue(table.probe(key), 4)).isEqualTo(-Value.CHECKMATE + 7);
+	}
+
+	@Test
+	void testReplacement() {
+		TranspositionTable table = new TranspositionTable(1);
+
+		// Both keys map to the same bucket
+		long deepKey = 1L << 40;
+		long shallowKey = 2L << 40;
+		long newKey = 3L << 40;
+
+		table.put(deepKey, 10, 1, TranspositionTable.EXACT, MOVE, 0);
+		table.put(shallowKey, 2, 2, TranspositionTable.EXACT, MOVE, 0);
+		assertThat(table.probe(deepKey)).isNotEqualTo(TranspositionTable.NOENTRY);
+		assertThat(table.probe(shallowKey)).isNotEqualTo(TranspositionTable.NOENTRY);
+
+		// The always-replace slot is overwritten
+		table.put(newKey, 1, 3, TranspositionTable.EXACT, MOVE, 0);
+		assertThat(table.probe(deepKey)).isNotEqualTo(TranspositionTable.NOENTRY);
+		assertThat(table.probe(shallowKey)).isEqualTo(TranspositionTable.NOENTRY);
+		assertThat(table.probe(newKey)).isNotEqualTo(TranspositionTable.NOENTRY);
+
+		// Entries from an older search are replaced in the depth-preferred slot
+		table.nextGeneration();
+		table.put(shallowKey, 1, 4, TranspositionTable.EXACT, MOVE, 0);
+		assertThat(table.probe(deepKey)).isEqualTo(TranspositionTable.NOENTRY);
+		assertThat(table.probe(shallowKey)).isNotEqualTo(TranspositionTable.NOENTRY);
+	}
+}
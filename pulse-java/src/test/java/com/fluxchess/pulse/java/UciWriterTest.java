@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import com.fluxchess.pulse.java.model.Move;
+import com.fluxchess.pulse.java.model.Piece;
+import com.fluxchess.pulse.java.model.PieceType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import static com.fluxchess.pulse.java.model.MoveType.NORMAL;
+import static com.fluxchess.pulse.java.model.MoveType.PAWNPROMOTION;
+import static com.fluxchess.pulse.java.model.Square.a7;
+import static com.fluxchess.pulse.java.model.Square.b8;
+import static com.fluxchess.pulse.java.model.Square.e2;
+import static com.fluxchess.pulse.java.model.Square.e4;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UciWriterTest {
+
+	private static final int MOVE = Move.valueOf(NORMAL, e2, e4, Piece.WHITE_PAWN, Piece.NOPIECE, PieceType.NOPIECETYPE);
+
+	/**
+	 * This stream blocks the writer thread in its first write until we
+	 * release it, so we can simulate a slow GUI.
+	 */
+	private static final class SlowOutputStream extends ByteArrayOutputStream {
+		private final CountDownLatch writing = new CountDownLatch(1);
+		private final CountDownLatch released = new CountDownLatch(1);
+
+		@Override
+		public synchronized void write(byte[] bytes, int offset, int length) {
+			writing.countDown();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.write(bytes, offset, length);
+		}
+	}
+
+	@Test
+	void testNumbers() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		UciWriter writer = new UciWriter(new PrintStream(output));
+
+		writer.append("info").append(" ").append(0)
+			.append(" ").append(-42)
+			.append(" ").append(1234567890123L)
+			.append(" ").append(Long.MIN_VALUE);
+		writer.writeLine();
+		writer.close();
+
+		assertThat(output.toString()).isEqualTo("info 0 -42 1234567890123 -9223372036854775808\n");
+	}
+
+	@Test
+	void testMoves() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		UciWriter writer = new UciWriter(new PrintStream(output));
+		int promotion = Move.valueOf(PAWNPROMOTION, a7, b8, Piece.WHITE_PAWN, Piece.BLACK_ROOK, PieceType.KNIGHT);
+
+		writer.append("info pv ").appendMove(MOVE).append(" ").appendMove(promotion);
+		writer.writeInfoLine();
+		writer.append("bestmove ").appendMove(promotion);
+		writer.writeLine();
+		writer.close();
+
+		assertThat(output.toString()).isEqualTo("info pv e2e4 a7b8n\nbestmove a7b8n\n");
+	}
+
+	@Test
+	void testLongLine() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		UciWriter writer = new UciWriter(new PrintStream(output));
+
+		writer.append("info pv");
+		for (int i = 0; i < 1000; i++) {
+			writer.append(" ").appendMove(MOVE);
+		}
+		writer.writeInfoLine();
+		writer.close();
+
+		assertThat(output.toString()).hasSize(7 + 1000 * 5 + 1);
+	}
+
+	@Test
+	void testFlush() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		UciWriter writer = new UciWriter(new PrintStream(output));
+
+		for (int i = 0; i < 10; i++) {
+			writer.append("info depth ").append(i);
+			writer.writeLine();
+		}
+		writer.flush();
+
+		assertThat(output.toString().split("\n")).hasSize(10);
+		writer.close();
+	}
+
+	@Test
+	void testSlowOutput() throws InterruptedException {
+		SlowOutputStream output = new SlowOutputStream();
+		UciWriter writer = new UciWriter(new PrintStream(output));
+
+		writer.append("info depth ").append(1);
+		writer.writeInfoLine();
+		output.writing.await();
+
+		// We keep only the latest status line
+		for (int i = 0; i < 10; i++) {
+			writer.append("info nodes ").append(i);
+			writer.writeStatusLine();
+		}
+
+		// We drop info lines once the queue is full
+		for (int i = 0; i < 2 * UciWriter.CAPACITY; i++) {
+			writer.append("info depth ").append(2);
+			writer.writeInfoLine();
+		}
+
+		output.released.countDown();
+		writer.append("bestmove ").appendMove(MOVE);
+		writer.writeLine();
+		writer.close();
+
+		String[] lines = output.toString().split("\n");
+		assertThat(lines[0]).isEqualTo("info depth 1");
+		assertThat(lines[1]).isEqualTo("info nodes 9");
+		assertThat(lines).hasSize(UciWriter.CAPACITY + 1);
+		assertThat(lines[lines.length - 1]).isEqualTo("bestmove e2e4");
+	}
+}
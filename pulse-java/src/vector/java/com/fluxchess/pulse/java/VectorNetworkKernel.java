@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2023 Phokham Nonava
+ *
+ * Use of this source code is governed by the MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.fluxchess.pulse.java;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This kernel computes the loops of the network with the Vector API. We
+ * process as many shorts at once as the CPU supports and finish the
+ * remaining ones with scalar code, so the results are the same as the ones
+ * of ScalarNetworkKernel.
+ */
+final class VectorNetworkKernel implements NetworkKernel {
+
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = SHORTS.withLanes(int.class);
+
+	// A product of a clipped accumulator value and a weight is at most
+	// Network.QA * 2^15 in magnitude, so we can add up 256 of them in an int.
+	// We reduce the int lanes into our long sum after that many products.
+	private static final int MAX_STEPS = 256 / SHORTS.length();
+
+	private static final short MIN_VALUE = 0;
+	private static final short MAX_VALUE = Network.QA;
+
+	@Override
+	public void add(short[] accumulator, short[] weights, int offset) {
+		int i = 0;
+		for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+			ShortVector.fromArray(SHORTS, accumulator, i)
+				.add(ShortVector.fromArray(SHORTS, weights, offset + i))
+				.intoArray(accumulator, i);
+		}
+
+		for (; i < accumulator.length; i++) {
+			accumulator[i] = (short) (accumulator[i] + weights[offset + i]);
+		}
+	}
+
+	@Override
+	public void subtract(short[] accumulator, short[] weights, int offset) {
+		int i = 0;
+		for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+			ShortVector.fromArray(SHORTS, accumulator, i)
+				.sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+				.intoArray(accumulator, i);
+		}
+
+		for (; i < accumulator.length; i++) {
+			accumulator[i] = (short) (accumulator[i] - weights[offset + i]);
+		}
+	}
+
+	@Override
+	public long dot(short[] accumulator, short[] weights, int offset) {
+		long sum = 0;
+
+		int i = 0;
+		int bound = SHORTS.loopBound(accumulator.length);
+		while (i < bound) {
+			IntVector products = IntVector.zero(INTS);
+			for (int end = Math.min(bound, i + MAX_STEPS * SHORTS.length()); i < end; i += SHORTS.length()) {
+				ShortVector values = ShortVector.fromArray(SHORTS, accumulator, i)
+					.max(MIN_VALUE)
+					.min(MAX_VALUE);
+				ShortVector weightValues = ShortVector.fromArray(SHORTS, weights, offset + i);
+
+				// The products don't fit into shorts, so we widen both halves of
+				// the lanes to ints
+				for (int part = 0; part < 2; part++) {
+					IntVector wideValues = (IntVector) values.convert(VectorOperators.S2I, part);
+					IntVector wideWeights = (IntVector) weightValues.convert(VectorOperators.S2I, part);
+					products = products.add(wideValues.mul(wideWeights));
+				}
+			}
+
+			sum += products.reduceLanes(VectorOperators.ADD);
+		}
+
+		for (; i < accumulator.length; i++) {
+			int value = Math.min(Math.max(accumulator[i], 0), Network.QA);
+			sum += value * weights[offset + i];
+		}
+
+		return sum;
+	}
+}
@@ -2,6 +2,7 @@ rootProject.name = "pulse"
 
 val modules = listOf(
 	"pulse-java",
+	"pulse-java-jmh",
 	"pulse-kotlin",
 )
 